@@ -0,0 +1,103 @@
+/**
+ * Writes large level files for the benchmarks to a temporary directory. A level parameter of the form
+ * "generated:ROWSxCOLUMNS" or "generated:ROWSxCOLUMNS:GHOSTS" becomes an open lattice of that size in the usual
+ * W/E/S/B/G/P text format, with a wrap-around tunnel through the middle row and the given number of ghosts (2 by
+ * default) along the bottom. "maze:ROWSxCOLUMNS[:GHOSTS]" becomes a MazeGenerator maze of that size from a fixed seed,
+ * which has far fewer open cells than the lattice. Any other parameter is used as a level file path as it is.
+ */
+
+package finalPacman.benchmarks;
+
+import finalPacman.MazeGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class GeneratedLevels {
+    private static final String PREFIX = "generated:";
+    private static final String MAZE_PREFIX = "maze:";
+    private static final long MAZE_SEED = 42;
+    private static final int DEFAULT_GHOST_COUNT = 2;
+
+    private GeneratedLevels() {
+    }
+
+    /**
+     * @param level a level file path, "generated:ROWSxCOLUMNS[:GHOSTS]" or "maze:ROWSxCOLUMNS[:GHOSTS]"
+     * @return the path of a level file to load
+     */
+    static String resolve(String level) {
+        if (level.startsWith(MAZE_PREFIX)) {
+            return maze(level.substring(MAZE_PREFIX.length()));
+        }
+        if (!level.startsWith(PREFIX)) {
+            return level;
+        }
+        String[] parts = level.substring(PREFIX.length()).split(":");
+        String[] size = parts[0].split("x");
+        int rowCount = Integer.parseInt(size[0]);
+        int columnCount = Integer.parseInt(size[1]);
+        int ghostCount = parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT_GHOST_COUNT;
+        try {
+            Path file = Files.createTempFile("pacman-" + rowCount + "x" + columnCount + "-" + ghostCount + "-", ".txt");
+            file.toFile().deleteOnExit();
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+                for (int row = 0; row < rowCount; row++) {
+                    for (int column = 0; column < columnCount; column++) {
+                        if (column > 0) {
+                            writer.write(' ');
+                        }
+                        writer.write(cell(row, column, rowCount, columnCount, ghostCount));
+                    }
+                    writer.write('\n');
+                }
+            }
+            return file.toString();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String maze(String parameters) {
+        String[] parts = parameters.split(":");
+        String[] size = parts[0].split("x");
+        int rowCount = Integer.parseInt(size[0]);
+        int columnCount = Integer.parseInt(size[1]);
+        int ghostCount = parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT_GHOST_COUNT;
+        try {
+            Path file = Files.createTempFile("pacman-maze-" + rowCount + "x" + columnCount + "-" + ghostCount + "-", ".txt");
+            file.toFile().deleteOnExit();
+            new MazeGenerator(rowCount, columnCount, ghostCount).generate(MAZE_SEED).write(file);
+            return file.toString();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static char cell(int row, int column, int rowCount, int columnCount, int ghostCount) {
+        int middleRow = rowCount / 2 | 1;
+        if (row == 1 && column == 1) {
+            return 'P';
+        }
+        //the ghosts' homes are every other cell of the bottom corridor, from the right
+        int fromRight = columnCount - 2 - column;
+        if (row == rowCount - 2 && fromRight >= 0 && fromRight % 2 == 0 && fromRight / 2 < ghostCount) {
+            return 'G';
+        }
+        if (row == middleRow && (column == 0 || column == columnCount - 1)) {
+            return 'E';
+        }
+        boolean edge = row == 0 || column == 0 || row == rowCount - 1 || column == columnCount - 1;
+        boolean post = row % 2 == 0 && column % 2 == 0;
+        if (edge || post) {
+            return 'W';
+        }
+        return (row + column) % 16 == 0 ? 'B' : 'S';
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Measures PacManModel.moveGhosts() for every ghost of the level in the three ghost states: chasing PacMan by maze
+ * distance, fleeing from him in ghostEatingMode, and wandering randomly with the original row/column strategy when
+ * PacMan is not in line with the ghost. The generated level with 256 ghosts shows how the cost grows with the number
+ * of ghosts.
+ */
+
+package finalPacman.benchmarks;
+
+import finalPacman.FlowFieldGhostStrategy;
+import finalPacman.GhostStrategy;
+import finalPacman.LevelCatalog;
+import finalPacman.PacManModel;
+import finalPacman.RowColumnGhostStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GhostBenchmark {
+    public enum GhostState {
+        CHASE, FLEE, RANDOM
+    }
+
+    @Param({"src/levels/level1.txt", "generated:1001x1001", "generated:1001x1001:256"})
+    public String level;
+
+    @Param({"CHASE", "FLEE", "RANDOM"})
+    public GhostState state;
+
+    private PacManModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = new PacManModel(LevelCatalog.of(GeneratedLevels.resolve(level)));
+        model.setRandomSeed(42);
+        GhostStrategy strategy = state == GhostState.RANDOM ? new RowColumnGhostStrategy() : new FlowFieldGhostStrategy();
+        model.setGhostStrategies(strategy);
+        model.setGhostEatingMode(state == GhostState.FLEE);
+    }
+
+    @Benchmark
+    public void moveGhosts() {
+        model.moveGhosts();
+    }
+}
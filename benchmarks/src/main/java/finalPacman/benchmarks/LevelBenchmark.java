@@ -0,0 +1,56 @@
+/**
+ * Measures loading a level with PacManModel.initializeLevel() (parsing the file and building the per-level tables)
+ * and sending every ghost home with sendGhostHome().
+ */
+
+package finalPacman.benchmarks;
+
+import finalPacman.LevelCatalog;
+import finalPacman.PacManModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelBenchmark {
+    @Param({"src/levels/level1.txt", "src/levels/level2.txt", "src/levels/level3.txt", "generated:101x101", "generated:1001x1001", "maze:1001x1001"})
+    public String level;
+
+    private String levelFile;
+    private PacManModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        levelFile = GeneratedLevels.resolve(level);
+        model = new PacManModel(LevelCatalog.of(levelFile));
+    }
+
+    @Benchmark
+    public PacManModel initializeLevel() {
+        model.initializeLevel(levelFile);
+        return model;
+    }
+
+    @Benchmark
+    public void sendGhostsHome() {
+        for (int ghost = 0; ghost < model.getGhostCount(); ghost++) {
+            model.sendGhostHome(ghost);
+        }
+    }
+}
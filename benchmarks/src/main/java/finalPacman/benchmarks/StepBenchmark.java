@@ -0,0 +1,58 @@
+/**
+ * Measures one call to PacManModel.step() on each shipped level and on large generated boards, with PacMan steered by
+ * a seeded RandomPacmanPolicy. A fresh game is started for every iteration; step() keeps simulating the board after
+ * the game ends, so no game restarts (and level parsing) are mixed into the measurement.
+ */
+
+package finalPacman.benchmarks;
+
+import finalPacman.LevelCatalog;
+import finalPacman.PacManModel;
+import finalPacman.RandomPacmanPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+    @Param({"src/levels/level1.txt", "src/levels/level2.txt", "src/levels/level3.txt", "generated:101x101", "generated:1001x1001", "generated:1001x1001:256", "maze:1001x1001"})
+    public String level;
+
+    private PacManModel model;
+    private RandomPacmanPolicy policy;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void loadLevel() {
+        model = new PacManModel(LevelCatalog.of(GeneratedLevels.resolve(level)));
+    }
+
+    @Setup(Level.Iteration)
+    public void startGame() {
+        model.setRandomSeed(42);
+        model.startNewGame();
+        policy = new RandomPacmanPolicy(42);
+        tick = 0;
+    }
+
+    @Benchmark
+    public void step() {
+        model.step(policy.chooseDirection(model, tick++));
+    }
+}
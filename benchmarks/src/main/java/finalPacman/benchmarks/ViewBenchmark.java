@@ -0,0 +1,105 @@
+/**
+ * Measures the time to step a game, update a board view and draw the actors halfway between cells, for frames of 1000 steps, comparing the ImageView-per-cell
+ * PacManView with the CanvasPacManView. The view is not attached to a window, so this measures the work update() does
+ * on the calling thread (node updates or queued canvas commands) rather than the render pulse. A fresh view is made for
+ * every iteration, so a canvas never queues more than one iteration's drawing commands. Both views show the board
+ * through a camera of the game's default size, so the cost should not grow with the board.
+ *
+ * JavaFX needs its toolkit running to load images, so on a machine without a display run the benchmarks under a
+ * virtual one (for example xvfb-run java -jar benchmarks/target/benchmarks.jar ViewBenchmark).
+ */
+
+package finalPacman.benchmarks;
+
+import finalPacman.BoardView;
+import finalPacman.CanvasPacManView;
+import finalPacman.Controller;
+import finalPacman.LevelCatalog;
+import finalPacman.PacManModel;
+import finalPacman.PacManView;
+import finalPacman.RandomPacmanPolicy;
+import javafx.application.Platform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = ViewBenchmark.FRAMES)
+@Measurement(iterations = 20, batchSize = ViewBenchmark.FRAMES)
+@Fork(value = 1, jvmArgsAppend = {"-Dprism.order=sw"})
+public class ViewBenchmark {
+    static final int FRAMES = 1000;
+    //the size of the view set in pacman.fxml
+    private static final int VIEW_ROWS = 21;
+    private static final int VIEW_COLUMNS = 19;
+
+    @Param({"src/levels/level1.txt", "generated:101x101", "generated:301x301", "maze:1001x1001"})
+    public String level;
+
+    @Param({Controller.IMAGE_VIEW, Controller.CANVAS_VIEW})
+    public String view;
+
+    private PacManModel model;
+    private BoardView boardView;
+    private RandomPacmanPolicy policy;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        try {
+            Platform.startup(() -> { });
+        }
+        catch (IllegalStateException e) {
+            //the toolkit is already running
+        }
+        model = new PacManModel(LevelCatalog.of(GeneratedLevels.resolve(level)));
+    }
+
+    @Setup(Level.Iteration)
+    public void createView() {
+        model.setRandomSeed(42);
+        model.startNewGame();
+        policy = new RandomPacmanPolicy(42);
+        tick = 0;
+        if (Controller.CANVAS_VIEW.equals(view)) {
+            CanvasPacManView canvasView = new CanvasPacManView();
+            canvasView.setRowCount(VIEW_ROWS);
+            canvasView.setColumnCount(VIEW_COLUMNS);
+            boardView = canvasView;
+        }
+        else {
+            PacManView imageView = new PacManView();
+            imageView.setRowCount(VIEW_ROWS);
+            imageView.setColumnCount(VIEW_COLUMNS);
+            boardView = imageView;
+        }
+        //draw the whole board once, as after a level load, so that frames only draw what changed
+        boardView.update(model);
+    }
+
+    @Benchmark
+    public void stepAndUpdate() {
+        model.step(policy.chooseDirection(model, tick++));
+        boardView.update(model);
+        boardView.interpolate(model, 0.5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Platform.exit();
+    }
+}
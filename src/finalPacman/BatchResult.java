@@ -0,0 +1,177 @@
+/**
+ * The aggregated outcome of a batch of games played by the BatchSimulator: the distribution of final scores, how many
+ * steps it took to clear a level, how often PacMan died, which level each game reached, and how fast the batch ran.
+ */
+
+package finalPacman;
+
+import java.util.Arrays;
+
+public class BatchResult {
+    private final int[] scores;
+    private final int[] levelReachedCounts;
+    private final int gameCount;
+    private final int deaths;
+    private final int wins;
+    private final long totalTicks;
+    private final int levelsCleared;
+    private final long ticksToClear;
+    private final long elapsedNanos;
+    private final int parallelism;
+
+    BatchResult(Tally tally, long elapsedNanos, int parallelism) {
+        this.scores = Arrays.copyOf(tally.scores, tally.gameCount);
+        Arrays.sort(this.scores);
+        this.levelReachedCounts = tally.levelReachedCounts.clone();
+        this.gameCount = tally.gameCount;
+        this.deaths = tally.deaths;
+        this.wins = tally.wins;
+        this.totalTicks = tally.totalTicks;
+        this.levelsCleared = tally.levelsCleared;
+        this.ticksToClear = tally.ticksToClear;
+        this.elapsedNanos = elapsedNanos;
+        this.parallelism = parallelism;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * @return the fraction of games that ended with PacMan being eaten
+     */
+    public double getDeathRate() {
+        return gameCount == 0 ? 0 : (double) deaths / gameCount;
+    }
+
+    /**
+     * @return the fraction of games in which every level was cleared
+     */
+    public double getWinRate() {
+        return gameCount == 0 ? 0 : (double) wins / gameCount;
+    }
+
+    public double getMeanScore() {
+        long total = 0;
+        for (int score : scores) {
+            total += score;
+        }
+        return gameCount == 0 ? 0 : (double) total / gameCount;
+    }
+
+    /**
+     * @param percentile a number from 0 to 100
+     * @return the final score below which the given percentage of games fall
+     */
+    public int getScorePercentile(double percentile) {
+        if (gameCount == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * gameCount) - 1;
+        return scores[Math.max(0, Math.min(gameCount - 1, index))];
+    }
+
+    /**
+     * @return the average number of steps it took to clear a level, over every level cleared in the batch
+     */
+    public double getMeanTicksToClear() {
+        return levelsCleared == 0 ? 0 : (double) ticksToClear / levelsCleared;
+    }
+
+    /**
+     * @param level a level number, starting at 1
+     * @return the number of games that ended on that level
+     */
+    public int getLevelReachedCount(int level) {
+        return levelReachedCounts[level - 1];
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getGamesPerSecond() {
+        return gameCount / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * @return the throughput divided by the number of worker threads the batch ran on
+     */
+    public double getGamesPerSecondPerCore() {
+        return getGamesPerSecond() / parallelism;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("games: %d, wins: %.1f%%, deaths: %.1f%%%n", gameCount, 100 * getWinRate(), 100 * getDeathRate()));
+        builder.append(String.format("score: mean %.1f, p10 %d, p50 %d, p90 %d, max %d%n", getMeanScore(),
+                getScorePercentile(10), getScorePercentile(50), getScorePercentile(90), getScorePercentile(100)));
+        builder.append(String.format("levels cleared: %d, mean ticks to clear: %.1f%n", levelsCleared, getMeanTicksToClear()));
+        for (int level = 1; level <= levelReachedCounts.length; level++) {
+            builder.append(String.format("ended on level %d: %d%n", level, getLevelReachedCount(level)));
+        }
+        builder.append(String.format("%d ticks in %.3f s on %d threads: %.0f games/s, %.0f games/s per core",
+                totalTicks, elapsedNanos / 1e9, parallelism, getGamesPerSecond(), getGamesPerSecondPerCore()));
+        return builder.toString();
+    }
+
+    /**
+     * Mutable running totals for one part of a batch; tallies from different tasks are merged into one result
+     */
+    static class Tally {
+        private int[] scores;
+        private final int[] levelReachedCounts;
+        private int gameCount;
+        private int deaths;
+        private int wins;
+        private long totalTicks;
+        private int levelsCleared;
+        private long ticksToClear;
+
+        Tally(int expectedGames, int levelCount) {
+            this.scores = new int[Math.max(1, expectedGames)];
+            this.levelReachedCounts = new int[levelCount];
+        }
+
+        void addGame(int score, int level, int ticks, boolean died, boolean won) {
+            if (gameCount == scores.length) {
+                scores = Arrays.copyOf(scores, 2 * gameCount);
+            }
+            scores[gameCount++] = score;
+            levelReachedCounts[level - 1]++;
+            totalTicks += ticks;
+            if (died) {
+                deaths++;
+            }
+            if (won) {
+                wins++;
+            }
+        }
+
+        void addLevelCleared(int ticks) {
+            levelsCleared++;
+            ticksToClear += ticks;
+        }
+
+        Tally merge(Tally other) {
+            int[] merged = Arrays.copyOf(scores, gameCount + other.gameCount);
+            System.arraycopy(other.scores, 0, merged, gameCount, other.gameCount);
+            scores = merged;
+            for (int level = 0; level < levelReachedCounts.length; level++) {
+                levelReachedCounts[level] += other.levelReachedCounts[level];
+            }
+            gameCount += other.gameCount;
+            deaths += other.deaths;
+            wins += other.wins;
+            totalTicks += other.totalTicks;
+            levelsCleared += other.levelsCleared;
+            ticksToClear += other.ticksToClear;
+            return this;
+        }
+    }
+}
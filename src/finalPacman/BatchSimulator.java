@@ -0,0 +1,147 @@
+/**
+ * Plays many complete headless games across all cores with a ForkJoinPool and aggregates the outcomes into a
+ * BatchResult. Each game is identified by a seed: the seed drives the ghosts' random moves, and a seed derived from it
+ * drives the PacManPolicy built for that game, so the two never draw the same random numbers and a batch with the same
+ * settings and seed range always produces the same results.
+ *
+ * The seed range is split recursively into tasks, and each leaf task reuses one PacManModel for all of its games. All
+ * the games share one LevelCatalog, so each level is read and its tables are built only once for the whole batch.
+ *
+ * Usage: java finalPacman.BatchSimulator [games] [tick cap] [parallelism]
+ */
+
+package finalPacman;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+public class BatchSimulator {
+    public static final int DEFAULT_TICK_CAP = 10_000;
+    private static final int GAMES_PER_LEAF = 64;
+
+    private final LevelCatalog levels;
+    private final LongFunction<PacmanPolicy> pacmanPolicies;
+    private final GhostStrategy ghostStrategy;
+    private final int tickCap;
+    private int parallelism;
+
+    /**
+     * @param levels the levels each game plays through, in order
+     * @param pacmanPolicies builds the policy that steers PacMan in a game, given a seed derived from the game's seed
+     * @param ghostStrategy the strategy every ghost uses
+     * @param tickCap the most steps a game may take before it is stopped
+     */
+    public BatchSimulator(LevelCatalog levels, LongFunction<PacmanPolicy> pacmanPolicies, GhostStrategy ghostStrategy, int tickCap) {
+        this.levels = levels;
+        this.pacmanPolicies = pacmanPolicies;
+        this.ghostStrategy = ghostStrategy;
+        this.tickCap = tickCap;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Plays one game for every seed from firstSeed to firstSeed + gameCount - 1
+     * @param firstSeed the seed of the first game
+     * @param gameCount the number of games to play
+     * @return the aggregated outcome of the games
+     */
+    public BatchResult run(long firstSeed, int gameCount) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long startTime = System.nanoTime();
+            BatchResult.Tally tally = pool.invoke(new GamesTask(firstSeed, gameCount));
+            return new BatchResult(tally, System.nanoTime() - startTime, parallelism);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a range of seeds, splitting it in half until it is small enough to play on one thread
+     */
+    private class GamesTask extends RecursiveTask<BatchResult.Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final long firstSeed;
+        private final int gameCount;
+
+        GamesTask(long firstSeed, int gameCount) {
+            this.firstSeed = firstSeed;
+            this.gameCount = gameCount;
+        }
+
+        @Override
+        protected BatchResult.Tally compute() {
+            if (gameCount <= GAMES_PER_LEAF) {
+                BatchResult.Tally tally = new BatchResult.Tally(gameCount, levels.size());
+                PacManModel model = new PacManModel(levels);
+                for (int game = 0; game < gameCount; game++) {
+                    playGame(model, firstSeed + game, tally);
+                }
+                return tally;
+            }
+            int half = gameCount / 2;
+            GamesTask first = new GamesTask(firstSeed, half);
+            GamesTask second = new GamesTask(firstSeed + half, gameCount - half);
+            first.fork();
+            BatchResult.Tally secondTally = second.compute();
+            return first.join().merge(secondTally);
+        }
+    }
+
+    /**
+     * @return the seed of the PacmanPolicy of the game with this seed, from a generator split off the one the game's seed
+     * starts, so PacMan's random moves are not the ghosts' moved along by a draw or two
+     */
+    private static long policySeed(long seed) {
+        return new SplittableRandom(seed).split().nextLong();
+    }
+
+    /**
+     * Plays one game from the start until PacMan dies, wins or the tick cap is reached
+     */
+    private void playGame(PacManModel model, long seed, BatchResult.Tally tally) {
+        model.setRandomSeed(seed);
+        model.startNewGame();
+        model.setGhostStrategies(ghostStrategy);
+        PacmanPolicy policy = pacmanPolicies.apply(policySeed(seed));
+        int level = model.getLevel();
+        int levelStartTick = 0;
+        int tick = 0;
+        while (!model.isGameOver() && tick < tickCap) {
+            model.step(policy.chooseDirection(model, tick));
+            tick++;
+            if (model.getLevel() != level || model.isYouWon()) {
+                tally.addLevelCleared(tick - levelStartTick);
+                level = model.getLevel();
+                levelStartTick = tick;
+            }
+        }
+        tally.addGame(model.getScore(), model.getLevel(), tick, model.isGameOver() && !model.isYouWon(), model.isYouWon());
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the number of worker threads to play games on
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public static void main(String[] args) {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int tickCap = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TICK_CAP;
+        BatchSimulator simulator = new BatchSimulator(LevelCatalog.getDefault(), RandomPacmanPolicy::new,
+                new FlowFieldGhostStrategy(), tickCap);
+        if (args.length > 2) {
+            simulator.setParallelism(Integer.parseInt(args[2]));
+        }
+        System.out.println(simulator.run(0, gameCount));
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * The game board, stored as a flat row-major array with one byte per cell. Each byte holds the ordinal of the cell's
+ * PacManModel.CellValue, so a wall check is a single array load and compare. Both the Model and the View read the
+ * board through this class.
+ *
+ * Boards of MAPPED_CELL_COUNT cells or more (see create()) keep their cells in a ChunkedBoardStore instead, off the heap
+ * and paged in by the operating system as the actors move around; every method works the same on both kinds of board,
+ * and a board on the heap only pays for a null check.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.CellValue;
+
+import java.nio.ByteBuffer;
+
+public final class Board {
+    public static final byte EMPTY = 0;
+    public static final byte SMALLDOT = 1;
+    public static final byte BIGDOT = 2;
+    public static final byte WALL = 3;
+    public static final byte GHOSTHOME = 4;
+    public static final byte PACMANHOME = 5;
+    //16 MiB; a board this large is too big to copy onto the heap for every game that plays it
+    public static final int MAPPED_CELL_COUNT = 1 << 24;
+
+    private static final CellValue[] CELL_VALUES = CellValue.values();
+
+    private final int rowCount;
+    private final int columnCount;
+    //exactly one of these is null
+    private final byte[] cells;
+    private final ChunkedBoardStore store;
+
+    /**
+     * Creates a board of the given size with every cell EMPTY
+     * @param rowCount
+     * @param columnCount
+     */
+    public Board(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.cells = new byte[rowCount * columnCount];
+        this.store = null;
+    }
+
+    /**
+     * Creates a board backed by the given cell codes
+     * @param rowCount
+     * @param columnCount
+     * @param cells rowCount * columnCount row-major cell codes; the board takes ownership of the array
+     */
+    public Board(int rowCount, int columnCount, byte[] cells) {
+        if (cells.length != rowCount * columnCount) {
+            throw new IllegalArgumentException("expected " + rowCount * columnCount + " cells but got " + cells.length);
+        }
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.cells = cells;
+        this.store = null;
+    }
+
+    /**
+     * Creates a board backed by a memory-mapped store
+     * @param store the cells of the board; the board takes ownership of the store
+     */
+    public Board(ChunkedBoardStore store) {
+        this.rowCount = store.getRowCount();
+        this.columnCount = store.getColumnCount();
+        this.cells = null;
+        this.store = store;
+    }
+
+    /**
+     * Creates a board of the given size with every cell EMPTY, mapped if it is that large
+     * @param rowCount
+     * @param columnCount
+     * @throws java.io.UncheckedIOException if the board should be mapped and cannot be
+     */
+    public static Board create(int rowCount, int columnCount) {
+        if (isMapped(rowCount, columnCount)) {
+            return new Board(new ChunkedBoardStore(rowCount, columnCount));
+        }
+        return new Board(rowCount, columnCount);
+    }
+
+    /**
+     * Creates a board holding the given cell codes, mapped like create() if it is that large
+     * @param rowCount
+     * @param columnCount
+     * @param cells rowCount * columnCount row-major cell codes; the board takes ownership of the array unless it is
+     * mapped, in which case they are copied and the array can be dropped
+     */
+    public static Board of(int rowCount, int columnCount, byte[] cells) {
+        if (isMapped(rowCount, columnCount)) {
+            Board board = create(rowCount, columnCount);
+            board.copyFrom(cells);
+            return board;
+        }
+        return new Board(rowCount, columnCount, cells);
+    }
+
+    /**
+     * @param rowCount
+     * @param columnCount
+     * @return whether create() maps a board of this size; the level's MoveTable and a FlowField over it are mapped too
+     */
+    public static boolean isMapped(int rowCount, int columnCount) {
+        return (long) rowCount * columnCount >= MAPPED_CELL_COUNT;
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the index of cell (row, column) in the flat cell array
+     */
+    public int index(int row, int column) {
+        return row * columnCount + column;
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the cell code of cell (row, column)
+     */
+    public byte get(int row, int column) {
+        if (cells != null) {
+            return cells[row * columnCount + column];
+        }
+        return store.get(row, column);
+    }
+
+    /**
+     * @param index a flat index as returned by index()
+     * @return the cell code at that index
+     */
+    public byte get(int index) {
+        if (cells != null) {
+            return cells[index];
+        }
+        return store.get(index);
+    }
+
+    public void set(int row, int column, byte value) {
+        if (cells != null) {
+            cells[row * columnCount + column] = value;
+        }
+        else {
+            store.set(row, column, value);
+        }
+    }
+
+    public void set(int index, byte value) {
+        if (cells != null) {
+            cells[index] = value;
+        }
+        else {
+            store.set(index, value);
+        }
+    }
+
+    public boolean isWall(int row, int column) {
+        return get(row, column) == WALL;
+    }
+
+    /**
+     * Replaces every cell of the board
+     * @param cells rowCount * columnCount row-major cell codes, which are copied
+     */
+    public void copyFrom(byte[] cells) {
+        if (cells.length != rowCount * columnCount) {
+            throw new IllegalArgumentException("expected " + rowCount * columnCount + " cells but got " + cells.length);
+        }
+        if (this.cells != null) {
+            System.arraycopy(cells, 0, this.cells, 0, cells.length);
+        }
+        else {
+            store.copyFrom(cells);
+        }
+    }
+
+    /**
+     * Replaces every cell of the board with cell codes read from a buffer, such as a mapped level file
+     * @param cells a buffer with rowCount * columnCount row-major cell codes from its position on; the position is
+     * moved past them
+     */
+    public void copyFrom(ByteBuffer cells) {
+        if (this.cells != null) {
+            cells.get(this.cells);
+        }
+        else {
+            store.copyFrom(cells);
+        }
+    }
+
+    /**
+     * Replaces every cell of the board with those of another board of the same size
+     * @param other the board to copy, which may be kept the other way (on the heap or mapped)
+     */
+    public void copyFrom(Board other) {
+        if (other.rowCount != rowCount || other.columnCount != columnCount) {
+            throw new IllegalArgumentException("cannot copy a " + other.rowCount + "x" + other.columnCount
+                    + " board into a " + rowCount + "x" + columnCount + " one");
+        }
+        if (other.cells != null) {
+            copyFrom(other.cells);
+        }
+        else if (store != null) {
+            store.copyFrom(other.store);
+        }
+        else {
+            for (int row = 0; row < rowCount; row++) {
+                for (int column = 0; column < columnCount; column++) {
+                    cells[row * columnCount + column] = other.store.get(row, column);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the cells are in a memory-mapped ChunkedBoardStore rather than on the heap
+     */
+    public boolean isMapped() {
+        return store != null;
+    }
+
+    /**
+     * Has the part of the board around a cell paged in, if the board is mapped
+     * @param index a flat index as returned by index()
+     */
+    public void pageIn(int index) {
+        if (store != null) {
+            store.pageIn(index / columnCount, index % columnCount);
+        }
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the CellValue of cell (row, column)
+     */
+    public CellValue getCellValue(int row, int column) {
+        return CELL_VALUES[get(row, column)];
+    }
+
+    public void setCellValue(int row, int column, CellValue value) {
+        set(row, column, (byte) value.ordinal());
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+}
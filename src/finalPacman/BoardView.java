@@ -0,0 +1,68 @@
+/**
+ * A view of the game board. The Controller calls update() after every step of the model to redraw the board, and
+ * interpolate() on every display frame to draw PacMan and the ghosts part of the way between their previous and
+ * current cells. PacManView draws the board with one ImageView per cell; CanvasPacManView draws it onto canvases.
+ * Both show a fixed number of rows and columns of a board of any size, through a Camera that follows PacMan.
+ */
+
+package finalPacman;
+
+public interface BoardView {
+    /** Updates the view to reflect the state of the model
+     *
+     * @param model
+     */
+    void update(PacManModel model);
+
+    /** Draws the actors at their positions a fraction of the way through the current step
+     *
+     * @param model
+     * @param alpha how far the game loop is towards the next step, from 0 (the previous cells) to 1 (the current cells)
+     */
+    void interpolate(PacManModel model, double alpha);
+
+    /**
+     * @param previous the flat Board index of the actor's cell before the last step
+     * @param current the flat Board index of the actor's cell now
+     * @param columnCount the number of columns on the board
+     * @param alpha from 0 to 1
+     * @return the row, in cells, to draw the actor at: part of the way from its previous cell when it moved to a
+     * neighboring cell, or its current row when it stayed put or jumped (through a tunnel or back home)
+     */
+    static double interpolatedRow(int previous, int current, int columnCount, double alpha) {
+        int row = current / columnCount;
+        if (!isNeighborMove(previous, current, columnCount)) {
+            return row;
+        }
+        int previousRow = previous / columnCount;
+        return previousRow + (row - previousRow) * alpha;
+    }
+
+    /**
+     * @return the column, in cells, to draw the actor at, as for interpolatedRow()
+     */
+    static double interpolatedColumn(int previous, int current, int columnCount, double alpha) {
+        int column = current % columnCount;
+        if (!isNeighborMove(previous, current, columnCount)) {
+            return column;
+        }
+        int previousColumn = previous % columnCount;
+        return previousColumn + (column - previousColumn) * alpha;
+    }
+
+    private static boolean isNeighborMove(int previous, int current, int columnCount) {
+        int rowChange = Math.abs(current / columnCount - previous / columnCount);
+        int columnChange = Math.abs(current % columnCount - previous % columnCount);
+        return rowChange + columnChange == 1;
+    }
+
+    /**
+     * @return the number of rows of cells the view shows
+     */
+    int getRowCount();
+
+    /**
+     * @return the number of columns of cells the view shows
+     */
+    int getColumnCount();
+}
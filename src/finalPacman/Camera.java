@@ -0,0 +1,137 @@
+/**
+ * Follows PacMan around a board that may be much larger than the view. The view shows a fixed number of rows and
+ * columns with PacMan in the middle, stopping at the edges of the board (a board smaller than the view is centered in
+ * it instead). The camera also keeps a window of board cells a little larger than what is visible: the views only
+ * create and draw the cells of the window, so their cost depends on the size of the view and not of the board. The
+ * margin around the visible cells means the window only moves when PacMan crosses into another cell, not on every
+ * frame.
+ */
+
+package finalPacman;
+
+public final class Camera {
+    //cells drawn beyond each edge of the view
+    public static final int MARGIN = 1;
+
+    private final int viewRowCount;
+    private final int viewColumnCount;
+    private int boardRowCount;
+    private int boardColumnCount;
+    private int windowRowCount;
+    private int windowColumnCount;
+    private double top;
+    private double left;
+    private int firstRow;
+    private int firstColumn;
+
+    /**
+     * @param viewRowCount the number of rows of cells the view shows
+     * @param viewColumnCount the number of columns of cells the view shows
+     */
+    public Camera(int viewRowCount, int viewColumnCount) {
+        this.viewRowCount = viewRowCount;
+        this.viewColumnCount = viewColumnCount;
+    }
+
+    /**
+     * Fits the window to a new board and moves it to the top left corner
+     * @param boardRowCount
+     * @param boardColumnCount
+     */
+    public void setBoardSize(int boardRowCount, int boardColumnCount) {
+        this.boardRowCount = boardRowCount;
+        this.boardColumnCount = boardColumnCount;
+        //one more than the view, as a view whose edge falls inside a cell shows part of one extra cell
+        this.windowRowCount = Math.min(this.viewRowCount + 2 * MARGIN + 1, boardRowCount);
+        this.windowColumnCount = Math.min(this.viewColumnCount + 2 * MARGIN + 1, boardColumnCount);
+        this.top = 0;
+        this.left = 0;
+        this.firstRow = 0;
+        this.firstColumn = 0;
+    }
+
+    /**
+     * Centers the view on a point of the board, as far as the edges of the board allow
+     * @param row the row, in cells, of the point to follow
+     * @param column the column, in cells, of the point to follow
+     * @return true if the window moved, so cells that were not in it before need drawing
+     */
+    public boolean follow(double row, double column) {
+        this.top = position(row, this.viewRowCount, this.boardRowCount);
+        this.left = position(column, this.viewColumnCount, this.boardColumnCount);
+        int firstRow = windowStart(this.top, this.windowRowCount, this.boardRowCount);
+        int firstColumn = windowStart(this.left, this.windowColumnCount, this.boardColumnCount);
+        boolean moved = firstRow != this.firstRow || firstColumn != this.firstColumn;
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        return moved;
+    }
+
+    private static double position(double center, int viewCount, int boardCount) {
+        if (boardCount <= viewCount) {
+            return (boardCount - viewCount) / 2.0;
+        }
+        //the middle of the followed cell, not its top left corner, goes in the middle of the view
+        return Math.max(0, Math.min(boardCount - viewCount, center + 0.5 - viewCount / 2.0));
+    }
+
+    private static int windowStart(double position, int windowCount, int boardCount) {
+        return Math.max(0, Math.min(boardCount - windowCount, (int) Math.floor(position) - MARGIN));
+    }
+
+    /**
+     * @return true if cell (row, column) is in the window
+     */
+    public boolean isInWindow(int row, int column) {
+        return row >= this.firstRow && row < this.firstRow + this.windowRowCount
+                && column >= this.firstColumn && column < this.firstColumn + this.windowColumnCount;
+    }
+
+    /**
+     * @param row the row, in cells, of the top edge of a sprite one cell in size
+     * @param column the column, in cells, of its left edge
+     * @return true if any part of the sprite is in the window
+     */
+    public boolean overlapsWindow(double row, double column) {
+        return row > this.firstRow - 1 && row < this.firstRow + this.windowRowCount
+                && column > this.firstColumn - 1 && column < this.firstColumn + this.windowColumnCount;
+    }
+
+    /**
+     * @return the row, in cells and possibly fractional or negative, at the top edge of the view
+     */
+    public double getTop() {
+        return this.top;
+    }
+
+    /**
+     * @return the column, in cells and possibly fractional or negative, at the left edge of the view
+     */
+    public double getLeft() {
+        return this.left;
+    }
+
+    public int getFirstRow() {
+        return this.firstRow;
+    }
+
+    public int getFirstColumn() {
+        return this.firstColumn;
+    }
+
+    public int getWindowRowCount() {
+        return this.windowRowCount;
+    }
+
+    public int getWindowColumnCount() {
+        return this.windowColumnCount;
+    }
+
+    public int getViewRowCount() {
+        return this.viewRowCount;
+    }
+
+    public int getViewColumnCount() {
+        return this.viewColumnCount;
+    }
+}
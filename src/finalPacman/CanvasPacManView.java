@@ -0,0 +1,269 @@
+/**
+ * Draws the game board onto Canvases instead of one ImageView node per cell, so the scene graph holds a handful of
+ * nodes however large the board is. Like PacManView it shows the board through a Camera that follows PacMan, and the
+ * canvases only cover the camera's window, so their size and drawing cost depend on the view and not on the board.
+ * The walls only change when a level is loaded or the window moves, so they are drawn into a cached background
+ * canvas; the dots are drawn onto a transparent canvas above it, only in the changed cells while the window stays
+ * put; and the actors are drawn on every display frame onto a third canvas on top, at interpolated positions.
+ */
+
+package finalPacman;
+
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.shape.Rectangle;
+
+public class CanvasPacManView extends Group implements BoardView {
+    public final static double CELL_WIDTH = PacManView.CELL_WIDTH;
+
+    private int rowCount;
+    private int columnCount;
+    private int boardRowCount;
+    private int boardColumnCount;
+    private Camera camera;
+    //the canvases, moved under the clip so the camera's view of the board shows through it
+    private final Group content;
+    private final Rectangle clip;
+    private final Canvas wallCanvas;
+    private final Canvas dotCanvas;
+    private final Canvas actorCanvas;
+    private Image pacmanImage;
+    //the image each ghost is drawn with
+    private Image[] ghostImages;
+    private Image pacmanRightImage;
+    private Image pacmanUpImage;
+    private Image pacmanDownImage;
+    private Image pacmanLeftImage;
+    //the ghosts take turns wearing these
+    private Image[] ghostColorImages;
+    private Image blueGhostImage;
+    private Image wallImage;
+    private Image bigDotImage;
+    private Image smallDotImage;
+
+    /**
+     * Initializes the values of the image instance variables from files and creates the three canvas layers
+     */
+    public CanvasPacManView() {
+        this.pacmanRightImage = new Image(getClass().getResourceAsStream("/res/pacmanRight.gif"));
+        this.pacmanUpImage = new Image(getClass().getResourceAsStream("/res/pacmanUp.gif"));
+        this.pacmanDownImage = new Image(getClass().getResourceAsStream("/res/pacmanDown.gif"));
+        this.pacmanLeftImage = new Image(getClass().getResourceAsStream("/res/pacmanLeft.gif"));
+        this.ghostColorImages = new Image[] {new Image(getClass().getResourceAsStream("/res/redghost.gif")),
+                new Image(getClass().getResourceAsStream("/res/ghost2.gif"))};
+        this.blueGhostImage = new Image(getClass().getResourceAsStream("/res/blueghost.gif"));
+        this.wallImage = new Image(getClass().getResourceAsStream("/res/wall.png"));
+        this.bigDotImage = new Image(getClass().getResourceAsStream("/res/whitedot.png"));
+        this.smallDotImage = new Image(getClass().getResourceAsStream("/res/smalldot.png"));
+        this.wallCanvas = new Canvas();
+        this.wallCanvas.setCache(true);
+        this.dotCanvas = new Canvas();
+        this.actorCanvas = new Canvas();
+        this.content = new Group(this.wallCanvas, this.dotCanvas, this.actorCanvas);
+        this.clip = new Rectangle();
+        this.content.setClip(this.clip);
+        this.getChildren().add(this.content);
+        this.pacmanImage = this.pacmanRightImage;
+        this.ghostImages = new Image[0];
+    }
+
+    /**
+     * Starts over with a view of the new size; the canvases are sized when the first board is shown
+     */
+    private void initializeCanvases() {
+        this.camera = new Camera(this.rowCount, this.columnCount);
+        this.boardRowCount = 0;
+        this.boardColumnCount = 0;
+        this.clip.setWidth(this.columnCount * CELL_WIDTH);
+        this.clip.setHeight(this.rowCount * CELL_WIDTH);
+    }
+
+    /**
+     * Sizes the canvases to the camera's window over the model's board
+     * @param model
+     */
+    private void fitToBoard(PacManModel model) {
+        this.boardRowCount = model.getRowCount();
+        this.boardColumnCount = model.getColumnCount();
+        this.camera.setBoardSize(this.boardRowCount, this.boardColumnCount);
+        double width = CELL_WIDTH * this.camera.getWindowColumnCount();
+        double height = CELL_WIDTH * this.camera.getWindowRowCount();
+        this.wallCanvas.setWidth(width);
+        this.wallCanvas.setHeight(height);
+        this.dotCanvas.setWidth(width);
+        this.dotCanvas.setHeight(height);
+        this.actorCanvas.setWidth(width);
+        this.actorCanvas.setHeight(height);
+    }
+
+    /** Updates the view to reflect the state of the model. The window is redrawn when the model reports that every
+     * cell has changed (as after loading a level), and otherwise only the changed cells in the window are redrawn. The
+     * actors' images are chosen here and they are drawn by interpolate().
+     *
+     * @param model
+     */
+    @Override
+    public void update(PacManModel model) {
+        GameEvents.ViewUpdate event = GameEvents.beginViewUpdate();
+        Board board = model.getBoard();
+        boolean resized = model.getRowCount() != this.boardRowCount || model.getColumnCount() != this.boardColumnCount;
+        if (resized) {
+            this.fitToBoard(model);
+        }
+        if (resized || model.areAllCellsChanged()) {
+            this.followPacman(model, 1.0);
+            this.drawWindow(board);
+        }
+        else {
+            GraphicsContext dots = this.dotCanvas.getGraphicsContext2D();
+            for (int i = 0; i < model.getChangedCellCount(); i++) {
+                int location = model.getChangedCell(i);
+                int row = location / this.boardColumnCount;
+                int column = location % this.boardColumnCount;
+                if (this.camera.isInWindow(row, column)) {
+                    double x = (column - this.camera.getFirstColumn()) * CELL_WIDTH;
+                    double y = (row - this.camera.getFirstRow()) * CELL_WIDTH;
+                    dots.clearRect(x, y, CELL_WIDTH, CELL_WIDTH);
+                    this.drawDot(dots, board.get(location), x, y);
+                }
+            }
+        }
+        this.chooseActorImages(model);
+        model.clearChangedCells();
+        GameEvents.end(event, model);
+    }
+
+    /**
+     * Points the camera at PacMan and moves the canvases under the clip to match, redrawing them if the window moved
+     * @param model
+     * @param alpha how far the game loop is towards the next step, from 0 to 1
+     */
+    private void followPacman(PacManModel model, double alpha) {
+        double row = BoardView.interpolatedRow(model.getPreviousPacmanIndex(), model.getPacmanIndex(), this.boardColumnCount, alpha);
+        double column = BoardView.interpolatedColumn(model.getPreviousPacmanIndex(), model.getPacmanIndex(), this.boardColumnCount, alpha);
+        if (this.camera.follow(row, column)) {
+            this.drawWindow(model.getBoard());
+        }
+        //the canvases hold the window, so they sit at the window's corner of the board
+        double x = (this.camera.getFirstColumn() - this.camera.getLeft()) * CELL_WIDTH;
+        double y = (this.camera.getFirstRow() - this.camera.getTop()) * CELL_WIDTH;
+        this.content.setTranslateX(x);
+        this.content.setTranslateY(y);
+        this.clip.setX(-x);
+        this.clip.setY(-y);
+    }
+
+    /**
+     * Draws the walls and dots of every cell of the camera's window
+     * @param board
+     */
+    private void drawWindow(Board board) {
+        GraphicsContext walls = this.wallCanvas.getGraphicsContext2D();
+        GraphicsContext dots = this.dotCanvas.getGraphicsContext2D();
+        //clearing the whole canvas also lets it discard the drawing commands queued since the last full redraw
+        walls.clearRect(0, 0, this.wallCanvas.getWidth(), this.wallCanvas.getHeight());
+        dots.clearRect(0, 0, this.dotCanvas.getWidth(), this.dotCanvas.getHeight());
+        for (int windowRow = 0; windowRow < this.camera.getWindowRowCount(); windowRow++) {
+            for (int windowColumn = 0; windowColumn < this.camera.getWindowColumnCount(); windowColumn++) {
+                byte value = board.get(this.camera.getFirstRow() + windowRow, this.camera.getFirstColumn() + windowColumn);
+                double x = windowColumn * CELL_WIDTH;
+                double y = windowRow * CELL_WIDTH;
+                if (value == Board.WALL) {
+                    walls.drawImage(this.wallImage, x, y, CELL_WIDTH, CELL_WIDTH);
+                }
+                else {
+                    this.drawDot(dots, value, x, y);
+                }
+            }
+        }
+    }
+
+    private void drawDot(GraphicsContext dots, byte value, double x, double y) {
+        if (value == Board.BIGDOT) {
+            dots.drawImage(this.bigDotImage, x, y, CELL_WIDTH, CELL_WIDTH);
+        }
+        else if (value == Board.SMALLDOT) {
+            dots.drawImage(this.smallDotImage, x, y, CELL_WIDTH, CELL_WIDTH);
+        }
+    }
+
+    /**
+     * Chooses the images for PacMan and the ghosts
+     * @param model
+     */
+    private void chooseActorImages(PacManModel model) {
+        //check which direction PacMan is going in and display the corresponding image
+        PacManModel.Direction lastDirection = model.getLastDirection();
+        Image pacmanImage = this.pacmanRightImage;
+        if (lastDirection == PacManModel.Direction.LEFT) {
+            pacmanImage = this.pacmanLeftImage;
+        }
+        else if (lastDirection == PacManModel.Direction.UP) {
+            pacmanImage = this.pacmanUpImage;
+        }
+        else if (lastDirection == PacManModel.Direction.DOWN) {
+            pacmanImage = this.pacmanDownImage;
+        }
+        this.pacmanImage = pacmanImage;
+        //display frightened ghosts blue, but make them "blink" towards the end of ghostEatingMode (display regular
+        //ghost images on alternating updates of the counter)
+        int counter = model.getGhostEatingModeCounter();
+        boolean blink = counter == 6 || counter == 4 || counter == 2;
+        if (this.ghostImages.length != model.getGhostCount()) {
+            this.ghostImages = new Image[model.getGhostCount()];
+        }
+        for (int ghost = 0; ghost < this.ghostImages.length; ghost++) {
+            boolean blue = model.isGhostFrightened(ghost) && !blink;
+            this.ghostImages[ghost] = blue ? this.blueGhostImage : this.ghostColorImages[ghost % this.ghostColorImages.length];
+        }
+    }
+
+    /** Moves the camera with PacMan and redraws PacMan and then the ghosts (so a ghost shows on top of PacMan) part
+     * of the way between their previous and current cells, skipping the ghosts outside the camera's window
+     *
+     * @param model
+     * @param alpha how far the game loop is towards the next step, from 0 to 1
+     */
+    @Override
+    public void interpolate(PacManModel model, double alpha) {
+        this.followPacman(model, alpha);
+        GraphicsContext actors = this.actorCanvas.getGraphicsContext2D();
+        actors.clearRect(0, 0, this.actorCanvas.getWidth(), this.actorCanvas.getHeight());
+        this.drawActor(actors, this.pacmanImage, model.getPreviousPacmanIndex(), model.getPacmanIndex(), alpha);
+        for (int ghost = 0; ghost < this.ghostImages.length; ghost++) {
+            this.drawActor(actors, this.ghostImages[ghost], model.getPreviousGhostIndex(ghost), model.getGhostIndex(ghost), alpha);
+        }
+    }
+
+    private void drawActor(GraphicsContext actors, Image image, int previous, int current, double alpha) {
+        double row = BoardView.interpolatedRow(previous, current, this.boardColumnCount, alpha);
+        double column = BoardView.interpolatedColumn(previous, current, this.boardColumnCount, alpha);
+        if (this.camera.overlapsWindow(row, column)) {
+            double x = (column - this.camera.getFirstColumn()) * CELL_WIDTH;
+            double y = (row - this.camera.getFirstRow()) * CELL_WIDTH;
+            actors.drawImage(image, x, y, CELL_WIDTH, CELL_WIDTH);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+        this.initializeCanvases();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+
+    public void setColumnCount(int columnCount) {
+        this.columnCount = columnCount;
+        this.initializeCanvases();
+    }
+}
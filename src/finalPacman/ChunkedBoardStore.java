@@ -0,0 +1,240 @@
+/**
+ * One value per cell of a very large board, kept in a memory-mapped temporary file instead of on the Java heap. The
+ * values are the board's cell codes, the MoveTable's move masks (both a byte per cell) or a FlowField's distances (an
+ * int per cell). The board is cut into square chunks of CHUNK_SIDE x CHUNK_SIDE cells, and each chunk is stored
+ * contiguously in the file, so the cells around an actor are usually in one chunk and rarely in more than four. The
+ * operating system pages chunks in as they are read and writes changed ones (eaten dots) back to the file, so only the
+ * chunks the game is using take memory, and none of them heap; pageIn() reads ahead around an actor so it does not
+ * wait on a page fault when it crosses into the next chunk.
+ *
+ * The file is deleted as soon as it is mapped (where the file system allows it), so it disappears with the store.
+ */
+
+package finalPacman;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class ChunkedBoardStore {
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIDE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIDE - 1;
+    //the file is mapped in segments of 1 GiB, as one MappedByteBuffer cannot pass 2 GiB
+    private static final int SEGMENT_BYTES_SHIFT = 30;
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int chunkRowCount;
+    private final int chunkColumnCount;
+    //log2 of the bytes of a value: 0 for bytes, 2 for ints
+    private final int valueShift;
+    //a chunk of bytes is 4 KiB, the size of a page on most systems, and a chunk of ints four pages
+    private final int chunkBytesShift;
+    private final int segmentChunkShift;
+    private final int segmentChunkMask;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Creates a store of a byte per cell, with every cell EMPTY
+     * @param rowCount
+     * @param columnCount
+     * @throws UncheckedIOException if the temporary file cannot be created or mapped
+     */
+    public ChunkedBoardStore(int rowCount, int columnCount) {
+        this(rowCount, columnCount, Byte.BYTES);
+    }
+
+    /**
+     * Creates a store with every value 0
+     * @param rowCount
+     * @param columnCount
+     * @param valueBytes the size of the value of a cell, Byte.BYTES or Integer.BYTES
+     * @throws UncheckedIOException if the temporary file cannot be created or mapped
+     */
+    public ChunkedBoardStore(int rowCount, int columnCount, int valueBytes) {
+        if (valueBytes != Byte.BYTES && valueBytes != Integer.BYTES) {
+            throw new IllegalArgumentException("cannot store values of " + valueBytes + " bytes");
+        }
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.chunkRowCount = (rowCount + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunkColumnCount = (columnCount + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.valueShift = Integer.numberOfTrailingZeros(valueBytes);
+        this.chunkBytesShift = 2 * CHUNK_SHIFT + this.valueShift;
+        this.segmentChunkShift = SEGMENT_BYTES_SHIFT - this.chunkBytesShift;
+        this.segmentChunkMask = (1 << this.segmentChunkShift) - 1;
+        long chunkCount = (long) this.chunkRowCount * this.chunkColumnCount;
+        this.segments = new MappedByteBuffer[(int) ((chunkCount + this.segmentChunkMask) >> this.segmentChunkShift)];
+        try {
+            Path file = Files.createTempFile("pacman-board-", ".cells");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int segment = 0; segment < this.segments.length; segment++) {
+                    long firstChunk = (long) segment << this.segmentChunkShift;
+                    long segmentChunks = Math.min(chunkCount - firstChunk, 1L << this.segmentChunkShift);
+                    //mapping past the end of the file grows it; the new bytes are zero, which is EMPTY
+                    this.segments[segment] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            firstChunk << this.chunkBytesShift, segmentChunks << this.chunkBytesShift);
+                }
+            }
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                //some systems cannot delete a mapped file
+                file.toFile().deleteOnExit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map a " + rowCount + "x" + columnCount + " board", e);
+        }
+    }
+
+    //the chunk holding cell (row, column), counted row by row across the chunks of the board
+    private int chunk(int row, int column) {
+        return (row >> CHUNK_SHIFT) * this.chunkColumnCount + (column >> CHUNK_SHIFT);
+    }
+
+    //the position of cell (row, column) in its segment
+    private int offset(int chunk, int row, int column) {
+        return (chunk & this.segmentChunkMask) << this.chunkBytesShift
+                | ((row & CHUNK_MASK) << CHUNK_SHIFT | column & CHUNK_MASK) << this.valueShift;
+    }
+
+    private MappedByteBuffer segment(int chunk) {
+        return this.segments[chunk >> this.segmentChunkShift];
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the byte value of cell (row, column)
+     */
+    public byte get(int row, int column) {
+        int chunk = chunk(row, column);
+        return segment(chunk).get(offset(chunk, row, column));
+    }
+
+    /**
+     * @param index a flat row-major index, as Board.index() gives
+     * @return the byte value of that cell
+     */
+    public byte get(int index) {
+        return get(index / this.columnCount, index % this.columnCount);
+    }
+
+    public void set(int row, int column, byte value) {
+        int chunk = chunk(row, column);
+        segment(chunk).put(offset(chunk, row, column), value);
+    }
+
+    public void set(int index, byte value) {
+        set(index / this.columnCount, index % this.columnCount, value);
+    }
+
+    /**
+     * @param index a flat row-major index
+     * @return the int value of that cell, in a store of ints
+     */
+    public int getInt(int index) {
+        int row = index / this.columnCount;
+        int column = index % this.columnCount;
+        int chunk = chunk(row, column);
+        return segment(chunk).getInt(offset(chunk, row, column));
+    }
+
+    public void setInt(int index, int value) {
+        int row = index / this.columnCount;
+        int column = index % this.columnCount;
+        int chunk = chunk(row, column);
+        segment(chunk).putInt(offset(chunk, row, column), value);
+    }
+
+    /**
+     * Sets every value of a store of ints
+     * @param value
+     */
+    public void fillInt(int value) {
+        for (MappedByteBuffer segment : this.segments) {
+            for (int offset = 0; offset < segment.limit(); offset += Integer.BYTES) {
+                segment.putInt(offset, value);
+            }
+        }
+    }
+
+    /**
+     * Copies a whole board of row-major byte values into the store
+     * @param cells rowCount * columnCount values
+     */
+    public void copyFrom(byte[] cells) {
+        for (int row = 0; row < this.rowCount; row++) {
+            //one row of a chunk is contiguous in the file
+            for (int column = 0; column < this.columnCount; column += CHUNK_SIDE) {
+                int chunk = chunk(row, column);
+                int length = Math.min(CHUNK_SIDE, this.columnCount - column);
+                segment(chunk).put(offset(chunk, row, column), cells, row * this.columnCount + column, length);
+            }
+        }
+    }
+
+    /**
+     * Copies a whole board of row-major byte values into the store, a chunk row at a time, so a board read from a
+     * file never has to be on the heap in one piece
+     * @param cells rowCount * columnCount values from the buffer's position on; the position is moved past them
+     */
+    public void copyFrom(ByteBuffer cells) {
+        int start = cells.position();
+        for (int row = 0; row < this.rowCount; row++) {
+            for (int column = 0; column < this.columnCount; column += CHUNK_SIDE) {
+                int chunk = chunk(row, column);
+                int length = Math.min(CHUNK_SIDE, this.columnCount - column);
+                segment(chunk).put(offset(chunk, row, column), cells, start + row * this.columnCount + column, length);
+            }
+        }
+        cells.position(start + this.rowCount * this.columnCount);
+    }
+
+    /**
+     * Copies every value of a store of the same size and value size, a whole segment at a time
+     * @param other the store to copy
+     */
+    public void copyFrom(ChunkedBoardStore other) {
+        if (other.rowCount != this.rowCount || other.columnCount != this.columnCount
+                || other.valueShift != this.valueShift) {
+            throw new IllegalArgumentException("cannot copy a store of another size");
+        }
+        for (int segment = 0; segment < this.segments.length; segment++) {
+            MappedByteBuffer source = other.segments[segment];
+            this.segments[segment].put(0, source, 0, source.limit());
+        }
+    }
+
+    /**
+     * Reads the chunk holding cell (row, column) and the eight chunks around it, so they are in memory before an actor
+     * on that cell reaches them; in a store of ints only the first page of each chunk is read
+     * @param row
+     * @param column
+     */
+    public void pageIn(int row, int column) {
+        int chunkRow = row >> CHUNK_SHIFT;
+        int chunkColumn = column >> CHUNK_SHIFT;
+        for (int r = Math.max(0, chunkRow - 1); r <= Math.min(this.chunkRowCount - 1, chunkRow + 1); r++) {
+            for (int c = Math.max(0, chunkColumn - 1); c <= Math.min(this.chunkColumnCount - 1, chunkColumn + 1); c++) {
+                int chunk = r * this.chunkColumnCount + c;
+                //touching one byte brings in the whole page
+                segment(chunk).get((chunk & this.segmentChunkMask) << this.chunkBytesShift);
+            }
+        }
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+}
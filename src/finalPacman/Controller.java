@@ -1,6 +1,13 @@
 /**
  * @author Jessie Baskauf and Ellie Mamantov
- * The Controller handles user input and coordinates the updating of the model and the view with the help of a timer.
+ * The Controller handles user input and coordinates the updating of the model and the view with the help of a
+ * fixed-timestep GameLoop, which steps the model at a steady rate and redraws the view on every display frame.
+ * All game rules live in the headless PacManModel; the Controller only adapts key events and timer ticks to it.
+ * Every game is started from a fresh seed and recorded by a ReplayRecorder, and when a replay directory is set each
+ * game is saved there as a Replay when it ends, so it can be played again exactly with ReplayEngine. The last
+ * REWIND_SECONDS of the game are kept in a RewindBuffer, and backspace goes back one second. The A key hands PacMan
+ * to a MonteCarloPacmanPolicy autopilot, which then steers in place of the arrow keys until A is pressed again; it
+ * searches on its own threads between steps, so the JavaFX thread does not wait for it.
  */
 
 package finalPacman;
@@ -10,56 +17,100 @@ import javafx.event.EventHandler;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
-import javafx.application.Platform;
-import java.util.Timer;
-import java.util.TimerTask;
+import javafx.scene.layout.BorderPane;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
 
 public class Controller implements EventHandler<KeyEvent> {
-    final private static double FRAMES_PER_SECOND = 5.0;
+    public static final double DEFAULT_STEPS_PER_SECOND = 5.0;
+    public static final String IMAGE_VIEW = "imageview";
+    public static final String CANVAS_VIEW = "canvas";
+    public static final int REWIND_SECONDS = 10;
 
     @FXML private Label scoreLabel;
     @FXML private Label levelLabel;
     @FXML private Label gameOverLabel;
+    @FXML private Label helpLabel;
+    @FXML private Label metricsLabel;
+    @FXML private BorderPane root;
     @FXML private PacManView pacManView;
+    private BoardView boardView;
+    private final String viewType;
+    private final LevelCatalog levels;
+    private final int viewRowCount;
+    private final int viewColumnCount;
     private PacManModel pacManModel;
-    private static final String[] levelFiles = {"src/levels/level1.txt", "src/levels/level2.txt", "src/levels/level3.txt"};
 
-    private Timer timer;
-    private static int ghostEatingModeCounter;
+    private GameLoop gameLoop;
+    private final double stepsPerSecond;
     private boolean paused;
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();
+    private final RewindBuffer rewindBuffer;
+    //gives every game its seed
+    private final SplittableRandom seeds = new SplittableRandom();
+    private Path replayDirectory;
+    private long autopilotBudgetMillis = MonteCarloPacmanPolicy.DEFAULT_BUDGET_MILLIS;
+    //steers PacMan while autopilotOn; made the first time it is turned on
+    private MonteCarloPacmanPolicy autopilot;
+    private boolean autopilotOn;
+    //null until metrics are turned on
+    private GameMetrics metrics;
+    private boolean metricsShown;
 
     public Controller() {
-        this.paused = false;
+        this(IMAGE_VIEW, DEFAULT_STEPS_PER_SECOND, LevelCatalog.getDefault());
     }
 
     /**
-     * Initialize and update the model and view from the first txt file and starts the timer.
+     * Shows the board through a view of the size set in pacman.fxml
      */
-    public void initialize() {
-        String file = this.getLevelFile(0);
-        this.pacManModel = new PacManModel();
-        this.update(PacManModel.Direction.NONE);
-        ghostEatingModeCounter = 25;
-        this.startTimer();
+    public Controller(String viewType, double stepsPerSecond, LevelCatalog levels) {
+        this(viewType, stepsPerSecond, levels, 0, 0);
     }
 
     /**
-     * Schedules the model to update based on the timer.
+     * @param viewType which view draws the board: IMAGE_VIEW for one ImageView per cell, or CANVAS_VIEW for a single
+     *                 canvas
+     * @param stepsPerSecond how many times per second the model is stepped
+     * @param levels the levels to play
+     * @param viewRowCount how many rows of cells the view shows, or 0 for the number set in pacman.fxml
+     * @param viewColumnCount how many columns of cells the view shows, or 0 for the number set in pacman.fxml
      */
-    private void startTimer() {
-        this.timer = new java.util.Timer();
-        TimerTask timerTask = new TimerTask() {
-            public void run() {
-                Platform.runLater(new Runnable() {
-                    public void run() {
-                        update(pacManModel.getCurrentDirection());
-                    }
-                });
-            }
-        };
+    public Controller(String viewType, double stepsPerSecond, LevelCatalog levels, int viewRowCount, int viewColumnCount) {
+        this.paused = false;
+        this.viewType = viewType;
+        this.stepsPerSecond = stepsPerSecond;
+        this.levels = levels;
+        this.viewRowCount = viewRowCount;
+        this.viewColumnCount = viewColumnCount;
+        this.rewindBuffer = new RewindBuffer((int) Math.ceil(REWIND_SECONDS * stepsPerSecond));
+    }
 
-        long frameTimeInMilliseconds = (long)(1000.0 / FRAMES_PER_SECOND);
-        this.timer.schedule(timerTask, 0, frameTimeInMilliseconds);
+    /**
+     * Initialize and update the model and view from the first level of the catalog and starts the game loop.
+     */
+    public void initialize() {
+        if (this.viewRowCount > 0 && this.viewColumnCount > 0) {
+            this.pacManView.setRowCount(this.viewRowCount);
+            this.pacManView.setColumnCount(this.viewColumnCount);
+        }
+        this.boardView = this.pacManView;
+        if (CANVAS_VIEW.equals(this.viewType)) {
+            CanvasPacManView canvasView = new CanvasPacManView();
+            canvasView.setRowCount(this.pacManView.getRowCount());
+            canvasView.setColumnCount(this.pacManView.getColumnCount());
+            this.root.setCenter(canvasView);
+            this.boardView = canvasView;
+        }
+        this.pacManModel = new PacManModel(this.levels);
+        this.startRecordedGame();
+        this.update(PacManModel.Direction.NONE);
+        this.gameLoop = new GameLoop(this.stepsPerSecond, () -> update(nextDirection()),
+                alpha -> boardView.interpolate(pacManModel, alpha));
+        this.gameLoop.setMetrics(this.metrics);
+        this.gameLoop.start();
     }
 
     /**
@@ -67,26 +118,127 @@ public class Controller implements EventHandler<KeyEvent> {
      * @param direction the most recently inputted direction for PacMan to move in
      */
     private void update(PacManModel.Direction direction) {
+        if (this.metrics != null) {
+            this.metrics.startTick(this.pacManModel);
+        }
         this.pacManModel.step(direction);
-        this.pacManView.update(pacManModel);
+        this.replayRecorder.recordTick(this.pacManModel.getStateChecksum());
+        this.rewindBuffer.record(this.pacManModel);
+        if (this.autopilotOn && !this.pacManModel.isGameOver()) {
+            //searches for the next step while this one is drawn
+            this.autopilot.startSearch(this.pacManModel);
+        }
+        if (this.metrics != null) {
+            this.metrics.endSimulation();
+        }
+        this.showModel();
+        if (this.metrics != null) {
+            this.metrics.endTick(this.pacManModel);
+            if (this.metricsShown) {
+                this.metricsLabel.setText(this.metrics.getSummary());
+            }
+        }
+    }
+
+    /**
+     * Updates the view, score and level, and displays Game Over/You Won
+     */
+    private void showModel() {
+        this.boardView.update(pacManModel);
         this.scoreLabel.setText(String.format("Score: %d", this.pacManModel.getScore()));
         this.levelLabel.setText(String.format("Level: %d", this.pacManModel.getLevel()));
         if (pacManModel.isGameOver()) {
             this.gameOverLabel.setText(String.format("GAME OVER"));
             pause();
+            this.saveReplay();
         }
         if (pacManModel.isYouWon()) {
             this.gameOverLabel.setText(String.format("YOU WON!"));
         }
-        //when PacMan is in ghostEatingMode, count down the ghostEatingModeCounter to reset ghostEatingMode to false when the counter is 0
-        if (pacManModel.isGhostEatingMode()) {
-            ghostEatingModeCounter--;
+        else if (this.autopilotOn && !pacManModel.isGameOver()) {
+            this.gameOverLabel.setText(String.format("AUTOPILOT %.0f rollouts/s", this.autopilot.getRolloutsPerSecond()));
+        }
+    }
+
+    /**
+     * @return the direction for the next step: the one from the keys, or when the autopilot is on, what its search
+     * since the last step chose
+     */
+    private PacManModel.Direction nextDirection() {
+        if (this.autopilotOn) {
+            this.setDirection(this.autopilot.finishSearch(this.pacManModel));
+        }
+        return this.pacManModel.getCurrentDirection();
+    }
+
+    /**
+     * Gives PacMan a new direction, recording it for the replay if it is a change
+     */
+    private void setDirection(PacManModel.Direction direction) {
+        if (direction != pacManModel.getCurrentDirection()) {
+            this.replayRecorder.recordInput(pacManModel.getTickCount(), direction);
+        }
+        pacManModel.setCurrentDirection(direction);
+    }
+
+    /**
+     * Turns the autopilot on or off
+     */
+    private void toggleAutopilot() {
+        if (this.autopilot == null) {
+            //the search leaves a core to the JavaFX thread
+            int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            this.autopilot = new MonteCarloPacmanPolicy(this.levels, threadCount, this.autopilotBudgetMillis);
+        }
+        this.autopilotOn = !this.autopilotOn;
+        //before initialize() there is no game to search yet; its first step starts the search
+        if (this.autopilotOn && this.pacManModel != null && !this.pacManModel.isGameOver()) {
+            this.autopilot.startSearch(this.pacManModel);
+        }
+        if (!this.autopilotOn && !pacManModel.isGameOver()) {
+            this.gameOverLabel.setText(String.format(""));
+        }
+    }
+
+    /**
+     * @param autopilotOn whether the autopilot steers PacMan from the start
+     * @param budgetMillis how long the autopilot searches on every step
+     */
+    public void setAutopilot(boolean autopilotOn, long budgetMillis) {
+        this.autopilotBudgetMillis = budgetMillis;
+        if (autopilotOn != this.autopilotOn) {
+            this.toggleAutopilot();
         }
-        if (ghostEatingModeCounter == 0 && pacManModel.isGhostEatingMode()) {
-            pacManModel.setGhostEatingMode(false);
+    }
+
+    /**
+     * Starts measuring the game and publishes the measurements through JMX (see GameMetrics), if it is not already
+     * being measured
+     */
+    public void enableMetrics() {
+        if (this.metrics != null) {
+            return;
+        }
+        this.metrics = new GameMetrics(this.stepsPerSecond);
+        this.metrics.register();
+        if (this.gameLoop != null) {
+            this.gameLoop.setMetrics(this.metrics);
         }
     }
 
+    /**
+     * Shows or hides the metrics in place of the instructions, turning metrics on the first time
+     */
+    private void toggleMetricsOverlay() {
+        this.enableMetrics();
+        this.metricsShown = !this.metricsShown;
+        this.metricsLabel.setText(this.metrics.getSummary());
+        this.metricsLabel.setVisible(this.metricsShown);
+        this.metricsLabel.setManaged(this.metricsShown);
+        this.helpLabel.setVisible(!this.metricsShown);
+        this.helpLabel.setManaged(!this.metricsShown);
+    }
+
     /**
      * Takes in user keyboard input to control the movement of PacMan and start new games
      * @param keyEvent user's key click
@@ -106,46 +258,116 @@ public class Controller implements EventHandler<KeyEvent> {
             direction = PacManModel.Direction.DOWN;
         } else if (code == KeyCode.G) {
             pause();
-            this.pacManModel.startNewGame();
+            //a game over has already been saved
+            if (!this.pacManModel.isGameOver()) {
+                this.saveReplay();
+            }
+            this.startRecordedGame();
             this.gameOverLabel.setText(String.format(""));
             paused = false;
-            this.startTimer();
+            this.gameLoop.start();
+        } else if (code == KeyCode.A) {
+            this.toggleAutopilot();
+            direction = pacManModel.getCurrentDirection();
+        } else if (code == KeyCode.F3) {
+            this.toggleMetricsOverlay();
+            direction = pacManModel.getCurrentDirection();
+        } else if (code == KeyCode.BACK_SPACE) {
+            this.rewind((int) Math.ceil(this.stepsPerSecond));
+            //carry on in the direction PacMan had at that step
+            direction = pacManModel.getCurrentDirection();
         } else {
             keyRecognized = false;
         }
         if (keyRecognized) {
             keyEvent.consume();
-            pacManModel.setCurrentDirection(direction);
+            //while the autopilot is on, it alone steers
+            if (!this.autopilotOn) {
+                this.setDirection(direction);
+            }
         }
     }
 
     /**
-     * Pause the timer
+     * Starts a new game from a new seed and starts recording it
      */
-    public void pause() {
-            this.timer.cancel();
-            this.paused = true;
+    private void startRecordedGame() {
+        long seed = this.seeds.nextLong();
+        this.pacManModel.setRandomSeed(seed);
+        this.pacManModel.startNewGame();
+        this.replayRecorder.start(seed);
+        this.rewindBuffer.clear();
     }
 
-    public double getBoardWidth() {
-        return PacManView.CELL_WIDTH * this.pacManView.getColumnCount();
+    /**
+     * Takes the game back a number of steps, or as far as the rewind buffer goes, and carries on playing from there.
+     * The replay being recorded is cut back to the same step, so it stays a replay of the game as finally played.
+     * @param steps how many steps to go back
+     */
+    private void rewind(int steps) {
+        if (this.rewindBuffer.size() == 0) {
+            return;
+        }
+        this.rewindBuffer.rewind(this.pacManModel, Math.min(steps, this.rewindBuffer.size() - 1));
+        this.replayRecorder.truncate(this.pacManModel.getTickCount());
+        if (this.autopilotOn && !this.pacManModel.isGameOver()) {
+            //the search under way was for the step that has just been taken back
+            this.autopilot.startSearch(this.pacManModel);
+        }
+        this.gameOverLabel.setText(String.format(""));
+        this.showModel();
+        if (this.paused && !this.pacManModel.isGameOver()) {
+            this.paused = false;
+            this.gameLoop.start();
+        }
     }
 
-    public double getBoardHeight() {
-        return PacManView.CELL_WIDTH * this.pacManView.getRowCount();
+    /**
+     * Writes the game recorded so far to the replay directory, if there is one
+     */
+    private void saveReplay() {
+        if (this.replayDirectory == null || this.replayRecorder.getTickCount() == 0) {
+            return;
+        }
+        Path file = this.replayDirectory.resolve("replay-" + Long.toHexString(this.replayRecorder.getSeed()) + Replay.EXTENSION);
+        try {
+            this.replayRecorder.toReplay().write(file);
+        } catch (UncheckedIOException e) {
+            //losing a replay is no reason to stop the game
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * @param replayDirectory where to save a Replay of every game when it ends, or null to not save them
+     */
+    public void setReplayDirectory(Path replayDirectory) {
+        this.replayDirectory = replayDirectory;
     }
 
-    public static void setGhostEatingModeCounter() {
-        ghostEatingModeCounter = 25;
+    /**
+     * Pause the game loop
+     */
+    public void pause() {
+        this.gameLoop.stop();
+        this.paused = true;
+        if (this.metrics != null) {
+            this.metrics.pauseTicks();
+        }
     }
 
-    public static int getGhostEatingModeCounter() {
-        return ghostEatingModeCounter;
+    /**
+     * @return the width of the view of the board, which is less than that of the whole board when it is large
+     */
+    public double getBoardWidth() {
+        return PacManView.CELL_WIDTH * this.boardView.getColumnCount();
     }
 
-    public static String getLevelFile(int x)
-    {
-        return levelFiles[x];
+    /**
+     * @return the height of the view of the board
+     */
+    public double getBoardHeight() {
+        return PacManView.CELL_WIDTH * this.boardView.getRowCount();
     }
 
     public boolean getPaused() {
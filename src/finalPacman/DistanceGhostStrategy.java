@@ -0,0 +1,46 @@
+/**
+ * Base class for ghost strategies that score each legal exit with a distance. The ghost takes the exit with the
+ * smallest distance, or the largest while the ghost is frightened, and keeps its current velocity when that is one of the best.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public abstract class DistanceGhostStrategy implements GhostStrategy {
+    /**
+     * @param model the game the ghost is in
+     * @param ghost the index of the ghost being moved
+     * @param location the flat Board index of a cell the ghost could move into
+     * @return the distance of that cell from the ghost's target
+     */
+    protected abstract int distance(PacManModel model, int ghost, int location);
+
+    /**
+     * @return whether the ghost should move away from its target while it is frightened
+     */
+    protected boolean fleesInGhostEatingMode() {
+        return true;
+    }
+
+    @Override
+    public Direction chooseDirection(PacManModel model, int ghost) {
+        MoveTable moveTable = model.getMoveTable();
+        int location = model.getGhostIndex(ghost);
+        Direction velocity = model.getGhostVelocity(ghost);
+        boolean flee = model.isGhostFrightened(ghost) && fleesInGhostEatingMode();
+        Direction bestDirection = velocity;
+        int bestDistance = -1;
+        int exitCount = moveTable.exitCount(location);
+        for (int exit = 0; exit < exitCount; exit++) {
+            Direction direction = moveTable.exit(location, exit);
+            int distance = distance(model, ghost, moveTable.neighbor(location, direction));
+            boolean better = bestDistance < 0 || (flee ? distance > bestDistance : distance < bestDistance);
+            if (better || (distance == bestDistance && direction == velocity)) {
+                bestDirection = direction;
+                bestDistance = distance;
+            }
+        }
+        return bestDirection;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Shortest maze distances between every pair of non-wall cells of a level, computed once per level with a
+ * breadth-first search from each cell over the legal moves of a MoveTable (so the wrap-around tunnels are taken into
+ * account). Every move can be reversed, so distances are symmetric and only one triangle of the matrix is stored, one
+ * byte per pair when every distance fits in a byte and one short per pair otherwise. Looking up a distance is O(1).
+ *
+ * The table grows with the square of the number of open cells, so build() gives up on boards with more than
+ * MAX_OPEN_CELLS open cells and callers fall back to behavior that does not need it.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public final class DistanceTable {
+    public static final int MAX_OPEN_CELLS = 4096;
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final int BYTE_UNREACHABLE = 0xFF;
+    private static final int SHORT_UNREACHABLE = 0xFFFF;
+
+    //for each Board index, the number of the open cell there, or -1 for a wall
+    private final int[] cellNodes;
+    private final int nodeCount;
+    private final byte[] byteDistances;
+    private final short[] shortDistances;
+    private final long buildNanos;
+
+    private DistanceTable(int[] cellNodes, int nodeCount, byte[] byteDistances, short[] shortDistances, long buildNanos) {
+        this.cellNodes = cellNodes;
+        this.nodeCount = nodeCount;
+        this.byteDistances = byteDistances;
+        this.shortDistances = shortDistances;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Computes the distance table for a level
+     * @param board the board of the level
+     * @param moveTable the legal moves of the same board
+     * @return the distance table, or null if the board has more than MAX_OPEN_CELLS open cells
+     */
+    public static DistanceTable build(Board board, MoveTable moveTable) {
+        long startTime = System.nanoTime();
+        int cellCount = board.getRowCount() * board.getColumnCount();
+        //counted first, so a board too big for a table, which may be too big for the heap, allocates nothing per cell
+        int openCellCount = 0;
+        for (int location = 0; location < cellCount && openCellCount <= MAX_OPEN_CELLS; location++) {
+            openCellCount += board.get(location) == Board.WALL ? 0 : 1;
+        }
+        if (openCellCount > MAX_OPEN_CELLS) {
+            return null;
+        }
+        int[] cellNodes = new int[cellCount];
+        int nodeCount = 0;
+        for (int location = 0; location < cellCount; location++) {
+            cellNodes[location] = board.get(location) == Board.WALL ? -1 : nodeCount++;
+        }
+        int[] nodeCells = new int[nodeCount];
+        for (int location = 0; location < cellCount; location++) {
+            if (cellNodes[location] >= 0) {
+                nodeCells[cellNodes[location]] = location;
+            }
+        }
+        //search from every open cell, writing the distances to the cells numbered after it into the triangle
+        short[] distances = new short[triangleSize(nodeCount)];
+        final int nodes = nodeCount;
+        IntStream sources = IntStream.range(0, nodeCount);
+        if (nodeCount >= PARALLEL_THRESHOLD) {
+            sources = sources.parallel();
+        }
+        int maxDistance = sources.map(source -> search(source, nodes, cellNodes, nodeCells, moveTable, distances)).max().orElse(0);
+        //unreachable pairs were stored as 0xFFFF, which narrows to the byte sentinel 0xFF
+        if (maxDistance < BYTE_UNREACHABLE) {
+            byte[] byteDistances = new byte[distances.length];
+            for (int i = 0; i < distances.length; i++) {
+                byteDistances[i] = (byte) distances[i];
+            }
+            return new DistanceTable(cellNodes, nodeCount, byteDistances, null, System.nanoTime() - startTime);
+        }
+        return new DistanceTable(cellNodes, nodeCount, null, distances, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Breadth-first search from one open cell
+     * @return the largest reachable distance found
+     */
+    private static int search(int source, int nodeCount, int[] cellNodes, int[] nodeCells, MoveTable moveTable, short[] distances) {
+        int[] nodeDistances = new int[nodeCount];
+        Arrays.fill(nodeDistances, -1);
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = nodeCells[source];
+        nodeDistances[source] = 0;
+        int maxDistance = 0;
+        while (head < tail) {
+            int location = queue[head++];
+            int distance = nodeDistances[cellNodes[location]];
+            for (Direction direction : DIRECTIONS) {
+                int next = moveTable.neighbor(location, direction);
+                if (next >= 0 && nodeDistances[cellNodes[next]] < 0) {
+                    nodeDistances[cellNodes[next]] = distance + 1;
+                    maxDistance = Math.max(maxDistance, distance + 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        int offset = triangleIndex(source, source + 1, nodeCount);
+        for (int node = source + 1; node < nodeCount; node++) {
+            int distance = nodeDistances[node];
+            distances[offset + node - source - 1] = (short) (distance < 0 ? SHORT_UNREACHABLE : distance);
+        }
+        return maxDistance;
+    }
+
+    private static int triangleSize(int nodeCount) {
+        return nodeCount * (nodeCount - 1) / 2;
+    }
+
+    //index of the pair (i, j), i < j, in the row-major upper triangle
+    private static int triangleIndex(int i, int j, int nodeCount) {
+        return i * (2 * nodeCount - i - 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * @param from a flat Board index of an open cell
+     * @param to a flat Board index of an open cell
+     * @return the number of moves on the shortest path between the cells, or UNREACHABLE if there is none
+     */
+    public int distance(int from, int to) {
+        int i = cellNodes[from];
+        int j = cellNodes[to];
+        if (i == j) {
+            return 0;
+        }
+        if (i > j) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        int index = triangleIndex(i, j, nodeCount);
+        int distance;
+        if (byteDistances != null) {
+            distance = byteDistances[index] & 0xFF;
+            return distance == BYTE_UNREACHABLE ? UNREACHABLE : distance;
+        }
+        distance = shortDistances[index] & 0xFFFF;
+        return distance == SHORT_UNREACHABLE ? UNREACHABLE : distance;
+    }
+
+    /**
+     * @return the number of open cells the table covers
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the approximate number of bytes the table occupies on the heap
+     */
+    public long getMemoryBytes() {
+        long distanceBytes = byteDistances != null ? byteDistances.length : 2L * shortDistances.length;
+        return distanceBytes + 4L * cellNodes.length;
+    }
+
+    /**
+     * @return how long build() took, in nanoseconds
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Prints the build time and memory cost of the DistanceTable for the shipped levels and for larger generated boards.
+ * The lattices (a wall on every other cell of every other row) have far more open cells than a real maze of the same
+ * size and so show the worst case; the MazeGenerator mazes of the same sizes show a more typical one.
+ *
+ * Usage: java finalPacman.DistanceTableReport
+ */
+
+package finalPacman;
+
+public class DistanceTableReport {
+    private static final int REPEATS = 20;
+    private static final int[] LATTICE_SIZES = {31, 51, 71, 101, 1001};
+    private static final long MAZE_SEED = 42;
+
+    public static void main(String[] args) {
+        System.out.printf("%-22s %10s %12s %14s%n", "board", "open cells", "build (ms)", "memory (KiB)");
+        LevelCatalog levels = LevelCatalog.getDefault();
+        for (int level = 0; level < levels.size(); level++) {
+            report(levels.getLevelName(level), levels.get(level).getLevel().createBoard());
+        }
+        for (int size : LATTICE_SIZES) {
+            report(String.format("lattice %dx%d", size, size), latticeBoard(size, size));
+        }
+        for (int size : LATTICE_SIZES) {
+            Level maze = new MazeGenerator(size, size, MazeGenerator.DEFAULT_GHOST_COUNT).generate(MAZE_SEED);
+            report(String.format("maze %dx%d", size, size), maze.createBoard());
+        }
+    }
+
+    private static void report(String name, Board board) {
+        MoveTable moveTable = new MoveTable(board);
+        DistanceTable table = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+            table = DistanceTable.build(board, moveTable);
+            if (table == null) {
+                break;
+            }
+            bestNanos = Math.min(bestNanos, table.getBuildNanos());
+        }
+        if (table == null) {
+            int openCells = countOpenCells(board);
+            double triangleMiB = (double) openCells * (openCells - 1) / 2 * 2 / (1 << 20);
+            System.out.printf("%-22s %10d %12s %14s (over the limit; would need ~%.0f MiB)%n", name, openCells, "-", "-", triangleMiB);
+            return;
+        }
+        System.out.printf("%-22s %10d %12.2f %14.1f%n", name, table.getNodeCount(), bestNanos / 1e6, table.getMemoryBytes() / 1024.0);
+    }
+
+    private static int countOpenCells(Board board) {
+        int openCells = 0;
+        for (int location = 0; location < board.getRowCount() * board.getColumnCount(); location++) {
+            if (board.get(location) != Board.WALL) {
+                openCells++;
+            }
+        }
+        return openCells;
+    }
+
+    /**
+     * @return a board with walls around the edge and on every cell whose row and column are both even
+     */
+    static Board latticeBoard(int rowCount, int columnCount) {
+        Board board = new Board(rowCount, columnCount);
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                boolean edge = row == 0 || column == 0 || row == rowCount - 1 || column == columnCount - 1;
+                boolean post = row % 2 == 0 && column % 2 == 0;
+                board.set(row, column, edge || post ? Board.WALL : Board.SMALLDOT);
+            }
+        }
+        return board;
+    }
+}
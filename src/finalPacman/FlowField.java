@@ -0,0 +1,139 @@
+/**
+ * Maze distances from every cell of a level to a single target cell, found with a breadth-first search over the
+ * level's MoveTable. The search only reruns when the target moves to a different cell, and its arrays are only
+ * allocated again when the field is moved to a larger level (see setMoveTable()), so keeping the field up to date does
+ * not allocate, and a game does not allocate a new field for every level. On a board large enough to be mapped (see
+ * Board.create()) the distances and the search's queue are kept in ChunkedBoardStores of ints, off the heap.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.util.Arrays;
+
+public final class FlowField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+
+    private MoveTable moveTable;
+    //on the heap, or when the level is mapped, null and the mapped stores are used instead
+    private int[] distances;
+    private int[] queue;
+    private ChunkedBoardStore mappedDistances;
+    private ChunkedBoardStore mappedQueue;
+    private int target;
+
+    /**
+     * @param moveTable the legal moves of the level
+     */
+    public FlowField(MoveTable moveTable) {
+        this.distances = new int[0];
+        this.queue = new int[0];
+        this.setMoveTable(moveTable);
+    }
+
+    /**
+     * Points the field at another level, keeping its arrays if they are big enough. The field has no target until
+     * setTarget() is called again.
+     * @param moveTable the legal moves of the level
+     */
+    public void setMoveTable(MoveTable moveTable) {
+        this.moveTable = moveTable;
+        int rowCount = moveTable.getRowCount();
+        int columnCount = moveTable.getColumnCount();
+        int cellCount = rowCount * columnCount;
+        if (Board.isMapped(rowCount, columnCount)) {
+            //a flat index is only used to find a place in the stores, so stores of another shape will do if they are
+            //big enough
+            if (this.mappedDistances == null
+                    || this.mappedDistances.getRowCount() * this.mappedDistances.getColumnCount() < cellCount) {
+                this.mappedDistances = new ChunkedBoardStore(rowCount, columnCount, Integer.BYTES);
+                this.mappedQueue = new ChunkedBoardStore(rowCount, columnCount, Integer.BYTES);
+            }
+            this.distances = null;
+            this.queue = null;
+        }
+        else {
+            if (this.distances == null || this.distances.length < cellCount) {
+                this.distances = new int[cellCount];
+                this.queue = new int[cellCount];
+            }
+            this.mappedDistances = null;
+            this.mappedQueue = null;
+        }
+        this.target = -1;
+    }
+
+    /**
+     * Points the field at a target cell, searching again only if the target changed
+     * @param target the flat Board index of the target
+     */
+    public void setTarget(int target) {
+        if (target == this.target) {
+            return;
+        }
+        this.target = target;
+        if (distances != null) {
+            search(target);
+        }
+        else {
+            searchMapped(target);
+        }
+    }
+
+    private void search(int target) {
+        Arrays.fill(distances, 0, moveTable.getRowCount() * moveTable.getColumnCount(), UNREACHABLE);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        distances[target] = 0;
+        while (head < tail) {
+            int location = queue[head++];
+            int distance = distances[location] + 1;
+            for (Direction direction : DIRECTIONS) {
+                int next = moveTable.neighbor(location, direction);
+                if (next >= 0 && distances[next] == UNREACHABLE) {
+                    distances[next] = distance;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    //the same search over the mapped stores
+    private void searchMapped(int target) {
+        mappedDistances.fillInt(UNREACHABLE);
+        int head = 0;
+        int tail = 0;
+        mappedQueue.setInt(tail++, target);
+        mappedDistances.setInt(target, 0);
+        while (head < tail) {
+            int location = mappedQueue.getInt(head++);
+            int distance = mappedDistances.getInt(location) + 1;
+            for (Direction direction : DIRECTIONS) {
+                int next = moveTable.neighbor(location, direction);
+                if (next >= 0 && mappedDistances.getInt(next) == UNREACHABLE) {
+                    mappedDistances.setInt(next, distance);
+                    mappedQueue.setInt(tail++, next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param location a flat Board index
+     * @return the maze distance from the location to the target, or UNREACHABLE
+     */
+    public int distance(int location) {
+        if (distances != null) {
+            return distances[location];
+        }
+        return mappedDistances.getInt(location);
+    }
+
+    public int getTarget() {
+        return target;
+    }
+}
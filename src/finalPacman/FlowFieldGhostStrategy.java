@@ -0,0 +1,14 @@
+/**
+ * Takes the exit with the shortest maze distance to PacMan, or the longest in ghostEatingMode. Distances come from
+ * the Model's distanceToPacman(), which is answered from the level's DistanceTable or from a single flow field toward
+ * PacMan shared by every ghost, so the cost per step does not grow with the number of ghosts.
+ */
+
+package finalPacman;
+
+public class FlowFieldGhostStrategy extends DistanceGhostStrategy {
+    @Override
+    protected int distance(PacManModel model, int ghost, int location) {
+        return model.distanceToPacman(location);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * The JDK Flight Recorder events the game emits, so a recording shows its steps, ghost moves, view updates and level
+ * loads on the same timeline as garbage collection, JIT compilation and the rest of the JVM's own events. Start the
+ * game with -XX:StartFlightRecording (or start a recording with jcmd) and look for the PacMan category in JDK Mission
+ * Control or `jfr print --categories PacMan`.
+ *
+ * Each phase is timed the same way:
+ *
+ *     GameEvents.Step event = GameEvents.beginStep();
+ *     ...
+ *     GameEvents.end(event, model);
+ *
+ * An event object is only created when a recording has its type turned on; otherwise begin gives null and end does
+ * nothing, so the game pays a flag check per phase and a step does not allocate, even before the JIT has had a chance
+ * to remove unused event objects. The game state fields are only read from the model when the event is actually going
+ * to be written.
+ */
+
+package finalPacman;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+final class GameEvents {
+    private static final EventType STEP = EventType.getEventType(Step.class);
+    private static final EventType MOVE_GHOSTS = EventType.getEventType(MoveGhosts.class);
+    private static final EventType VIEW_UPDATE = EventType.getEventType(ViewUpdate.class);
+    private static final EventType INITIALIZE_LEVEL = EventType.getEventType(InitializeLevel.class);
+    private static final EventType START_NEXT_LEVEL = EventType.getEventType(StartNextLevel.class);
+    private static final EventType GHOST_DECISION = EventType.getEventType(GhostDecision.class);
+
+    private GameEvents() {
+    }
+
+    static Step beginStep() {
+        return STEP.isEnabled() ? begin(new Step()) : null;
+    }
+
+    static MoveGhosts beginMoveGhosts() {
+        return MOVE_GHOSTS.isEnabled() ? begin(new MoveGhosts()) : null;
+    }
+
+    static ViewUpdate beginViewUpdate() {
+        return VIEW_UPDATE.isEnabled() ? begin(new ViewUpdate()) : null;
+    }
+
+    static InitializeLevel beginInitializeLevel() {
+        return INITIALIZE_LEVEL.isEnabled() ? begin(new InitializeLevel()) : null;
+    }
+
+    static StartNextLevel beginStartNextLevel() {
+        return START_NEXT_LEVEL.isEnabled() ? begin(new StartNextLevel()) : null;
+    }
+
+    private static <T extends GameStateEvent> T begin(T event) {
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a phase and writes its event, with the state of the game, if it is being recorded and lasted long enough
+     * @param event what the begin method for the phase returned
+     * @param model the game
+     */
+    static void end(GameStateEvent event, PacManModel model) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = model.getLevel();
+            event.score = model.getScore();
+            event.dotCount = model.getDotCount();
+            event.ghostCount = model.getGhostCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes a GhostDecision event, if they are being recorded
+     * @param ghost the index of the ghost
+     * @param direction the direction it moved in
+     * @param redrawCount how many random directions were drawn because the strategy's direction hit a wall
+     */
+    static void ghostDecision(int ghost, PacManModel.Direction direction, int redrawCount) {
+        if (!GHOST_DECISION.isEnabled()) {
+            return;
+        }
+        GhostDecision event = new GhostDecision();
+        if (event.shouldCommit()) {
+            event.ghost = ghost;
+            event.direction = direction.name();
+            event.redrawCount = redrawCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * A phase of the game, with the state of the game once it is over
+     */
+    @Category("PacMan")
+    @StackTrace(false)
+    abstract static class GameStateEvent extends Event {
+        @Label("Level")
+        int level;
+        @Label("Score")
+        int score;
+        @Label("Dots Left")
+        int dotCount;
+        @Label("Ghosts")
+        int ghostCount;
+    }
+
+    @Name("finalPacman.Step")
+    @Label("Step")
+    @Description("PacManModel.step: one tick of the game")
+    static final class Step extends GameStateEvent {
+    }
+
+    @Name("finalPacman.MoveGhosts")
+    @Label("Move Ghosts")
+    @Description("PacManModel.moveGhosts: every ghost choosing its direction and moving")
+    static final class MoveGhosts extends GameStateEvent {
+    }
+
+    @Name("finalPacman.ViewUpdate")
+    @Label("View Update")
+    @Description("BoardView.update: redrawing the changed cells and choosing the actors' images")
+    static final class ViewUpdate extends GameStateEvent {
+    }
+
+    @Name("finalPacman.InitializeLevel")
+    @Label("Initialize Level")
+    @Description("PacManModel.initializeLevel: resetting the board and actors from a prepared level")
+    static final class InitializeLevel extends GameStateEvent {
+    }
+
+    @Name("finalPacman.StartNextLevel")
+    @Label("Start Next Level")
+    @Description("PacManModel.startNextLevel: moving on once a level is complete, including loading the next one")
+    static final class StartNextLevel extends GameStateEvent {
+    }
+
+    /**
+     * One ghost's move. There are as many of these as ghosts in every step, so a recording of a long batch run can get
+     * large; they can be turned off in the recording settings on their own.
+     */
+    @Name("finalPacman.GhostDecision")
+    @Label("Ghost Decision")
+    @Description("PacManModel.moveAGhost: the direction a ghost moved in, and whether its strategy's choice hit a wall")
+    @Category("PacMan")
+    @StackTrace(false)
+    static final class GhostDecision extends Event {
+        @Label("Ghost")
+        int ghost;
+        @Label("Direction")
+        String direction;
+        @Label("Random Re-draws")
+        @Description("1 if the strategy's direction hit a wall and a random open direction was drawn instead, else 0")
+        int redrawCount;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * A fixed-timestep game loop driven by the JavaFX AnimationTimer. The display calls handle() once per frame at its
+ * refresh rate; the time since the last frame is added to an accumulator and the simulation is stepped once for every
+ * whole step interval in it, so the game runs at the same speed whatever the frame rate. After stepping, the renderer
+ * is told how far the simulation has got towards the next step (from 0 to 1) so it can draw the actors part of the way
+ * between their previous and current cells.
+ *
+ * The same loop is stopped and started again across pauses and new games.
+ */
+
+package finalPacman;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.function.DoubleConsumer;
+
+public class GameLoop extends AnimationTimer {
+    //after a long stall (such as a window drag), catch up by at most this many steps rather than freezing the display
+    private static final int MAX_STEPS_PER_FRAME = 5;
+
+    private final Runnable step;
+    private final DoubleConsumer render;
+    private long stepNanos;
+    private long lastFrameTime;
+    private long accumulator;
+    private boolean running;
+    //null unless the game is being measured
+    private GameMetrics metrics;
+
+    /**
+     * @param stepsPerSecond how many times per second to step the simulation
+     * @param step steps the simulation once
+     * @param render draws the current state, given the fraction of a step elapsed since the last one
+     */
+    public GameLoop(double stepsPerSecond, Runnable step, DoubleConsumer render) {
+        this.step = step;
+        this.render = render;
+        this.setStepsPerSecond(stepsPerSecond);
+    }
+
+    /**
+     * Starts (or restarts) the loop; the simulation steps on the first frame
+     */
+    @Override
+    public void start() {
+        this.lastFrameTime = -1;
+        this.accumulator = 0;
+        this.running = true;
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        super.stop();
+    }
+
+    @Override
+    public void handle(long now) {
+        long elapsed = this.lastFrameTime < 0 ? this.stepNanos : now - this.lastFrameTime;
+        this.lastFrameTime = now;
+        long available = this.accumulator + elapsed;
+        this.accumulator = Math.min(available, MAX_STEPS_PER_FRAME * this.stepNanos);
+        if (this.metrics != null) {
+            this.metrics.recordFrame(elapsed, available > this.accumulator);
+        }
+        while (this.running && this.accumulator >= this.stepNanos) {
+            this.step.run();
+            this.accumulator -= this.stepNanos;
+        }
+        //if a step stopped the loop (for example at game over), show the actors where they ended up
+        this.render.accept(this.running ? (double) this.accumulator / this.stepNanos : 1.0);
+    }
+
+    public double getStepsPerSecond() {
+        return 1e9 / this.stepNanos;
+    }
+
+    public void setStepsPerSecond(double stepsPerSecond) {
+        this.stepNanos = (long) (1e9 / stepsPerSecond);
+    }
+
+    /**
+     * @param metrics where to count frames and dropped steps, or null to not count them
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Measures a running game: how long each tick takes and how that splits between stepping the model (simulation) and
+ * updating the view and labels (render); how far apart ticks start compared with the nominal step interval (jitter);
+ * the bytes the game thread allocates per tick; how long levels take to load; how many frames are late and how many
+ * steps the game loop has had to drop; and how many dots and ghosts have been eaten and how often PacMan has died.
+ *
+ * The Controller only creates a GameMetrics when metrics are turned on, and otherwise pays one null check per tick
+ * and per frame. With metrics on, a tick costs a handful of System.nanoTime() calls, two reads of the thread's
+ * allocation counter and a few Histogram.record() calls, none of which allocate. register() publishes the metrics and
+ * every histogram as JMX MBeans, for jconsole or any JMX client.
+ */
+
+package finalPacman;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class GameMetrics implements GameMetricsMBean {
+    public static final String OBJECT_NAME = "finalPacman:type=GameMetrics";
+    //a frame is late if it comes more than this many times the average frame interval after the one before
+    private static final int LATE_FRAME_FACTOR = 2;
+    //the average frame interval follows the latest frames with a weight of 1 / 2^FRAME_AVERAGE_SHIFT
+    private static final int FRAME_AVERAGE_SHIFT = 4;
+
+    private final Histogram tick = new Histogram("tick nanoseconds");
+    private final Histogram simulation = new Histogram("simulation nanoseconds");
+    private final Histogram render = new Histogram("render nanoseconds");
+    private final Histogram tickJitter = new Histogram("tick jitter nanoseconds");
+    private final Histogram tickAllocation = new Histogram("tick allocated bytes");
+    private final Histogram levelLoad = new Histogram("level load nanoseconds");
+    private final long nominalTickNanos;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final boolean allocationMeasured;
+    private long tickStartTime;
+    private long simulationEndTime;
+    //0 when the last tick did not start in the same run of the game loop, so there is no interval to measure
+    private long lastTickStartTime;
+    private long tickStartAllocatedBytes;
+    private long dotsEaten;
+    private long ghostsEaten;
+    private long deaths;
+    //the model's event counters as the tick started
+    private long tickStartDotsEatenCount;
+    private long tickStartGhostsEatenCount;
+    private long tickStartDeathCount;
+    private long lastLevelLoadCount;
+    private long frameCount;
+    private long lateFrameCount;
+    private long droppedStepFrameCount;
+    private long averageFrameNanos;
+
+    /**
+     * @param stepsPerSecond the nominal tick rate, which jitter is measured against
+     */
+    public GameMetrics(double stepsPerSecond) {
+        this.nominalTickNanos = (long) (1e9 / stepsPerSecond);
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.allocationMeasured = this.threadBean.isThreadAllocatedMemorySupported()
+                && this.threadBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Publishes the metrics and their histograms through the platform MBean server
+     * @throws IllegalStateException if they cannot be registered, for example because another game already has
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+            for (Histogram histogram : histograms()) {
+                server.registerMBean(histogram, histogramName(histogram));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the game metrics", e);
+        }
+    }
+
+    /**
+     * Removes the MBeans register() published
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+            for (Histogram histogram : histograms()) {
+                server.unregisterMBean(histogramName(histogram));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister the game metrics", e);
+        }
+    }
+
+    private Histogram[] histograms() {
+        return new Histogram[] {this.tick, this.simulation, this.render, this.tickJitter, this.tickAllocation, this.levelLoad};
+    }
+
+    private static ObjectName histogramName(Histogram histogram) throws JMException {
+        return new ObjectName(OBJECT_NAME + ",histogram=" + ObjectName.quote(histogram.getName()));
+    }
+
+    /**
+     * Called as a tick starts, before the model is stepped
+     * @param model the game
+     */
+    public void startTick(PacManModel model) {
+        this.tickStartTime = System.nanoTime();
+        if (this.lastTickStartTime != 0) {
+            this.tickJitter.record(Math.abs(this.tickStartTime - this.lastTickStartTime - this.nominalTickNanos));
+        }
+        this.lastTickStartTime = this.tickStartTime;
+        if (this.allocationMeasured) {
+            this.tickStartAllocatedBytes = this.threadBean.getCurrentThreadAllocatedBytes();
+        }
+        this.tickStartDotsEatenCount = model.getDotsEatenCount();
+        this.tickStartGhostsEatenCount = model.getGhostsEatenCount();
+        this.tickStartDeathCount = model.getDeathCount();
+    }
+
+    /**
+     * Called once the model has been stepped, before the view is updated
+     */
+    public void endSimulation() {
+        this.simulationEndTime = System.nanoTime();
+        this.simulation.record(this.simulationEndTime - this.tickStartTime);
+    }
+
+    /**
+     * Called once the view and labels have been updated
+     * @param model the game, whose events during the tick are added to the counters
+     */
+    public void endTick(PacManModel model) {
+        long endTime = System.nanoTime();
+        this.render.record(endTime - this.simulationEndTime);
+        this.tick.record(endTime - this.tickStartTime);
+        if (this.allocationMeasured) {
+            this.tickAllocation.record(this.threadBean.getCurrentThreadAllocatedBytes() - this.tickStartAllocatedBytes);
+        }
+        this.dotsEaten += model.getDotsEatenCount() - this.tickStartDotsEatenCount;
+        this.ghostsEaten += model.getGhostsEatenCount() - this.tickStartGhostsEatenCount;
+        this.deaths += model.getDeathCount() - this.tickStartDeathCount;
+        //levels are also loaded between ticks, when a new game starts, so loads are counted from tick to tick
+        if (model.getLevelLoadCount() != this.lastLevelLoadCount) {
+            this.levelLoad.record(model.getLastLevelLoadNanos());
+            this.lastLevelLoadCount = model.getLevelLoadCount();
+        }
+    }
+
+    /**
+     * Called when the game loop stops, so the gap until it starts again is not taken for jitter
+     */
+    public void pauseTicks() {
+        this.lastTickStartTime = 0;
+    }
+
+    /**
+     * Called by the game loop on every display frame
+     * @param elapsedNanos the time since the previous frame
+     * @param stepsDropped whether the loop fell so far behind that it gave up on some steps
+     */
+    public void recordFrame(long elapsedNanos, boolean stepsDropped) {
+        this.frameCount++;
+        if (this.frameCount > 1 << FRAME_AVERAGE_SHIFT && elapsedNanos > LATE_FRAME_FACTOR * this.averageFrameNanos) {
+            this.lateFrameCount++;
+        }
+        if (this.frameCount == 1) {
+            this.averageFrameNanos = elapsedNanos;
+        }
+        else {
+            this.averageFrameNanos += (elapsedNanos - this.averageFrameNanos) >> FRAME_AVERAGE_SHIFT;
+        }
+        if (stepsDropped) {
+            this.droppedStepFrameCount++;
+        }
+    }
+
+    /**
+     * @return one line for the in-game overlay
+     */
+    public String getSummary() {
+        return String.format("tick %.2f/%.2f ms  sim %.2f  render %.2f  jitter %.1f ms  %d B/tick  late frames %d",
+                this.tick.getP50() / 1e6, this.tick.getP99() / 1e6, this.simulation.getP99() / 1e6,
+                this.render.getP99() / 1e6, this.tickJitter.getP99() / 1e6, this.tickAllocation.getP50(),
+                this.lateFrameCount);
+    }
+
+    @Override
+    public void reset() {
+        for (Histogram histogram : histograms()) {
+            histogram.reset();
+        }
+        this.dotsEaten = 0;
+        this.ghostsEaten = 0;
+        this.deaths = 0;
+        this.frameCount = 0;
+        this.lateFrameCount = 0;
+        this.droppedStepFrameCount = 0;
+    }
+
+    public Histogram getTickHistogram() {
+        return this.tick;
+    }
+
+    public Histogram getSimulationHistogram() {
+        return this.simulation;
+    }
+
+    public Histogram getRenderHistogram() {
+        return this.render;
+    }
+
+    public Histogram getTickJitterHistogram() {
+        return this.tickJitter;
+    }
+
+    public Histogram getTickAllocationHistogram() {
+        return this.tickAllocation;
+    }
+
+    public Histogram getLevelLoadHistogram() {
+        return this.levelLoad;
+    }
+
+    @Override
+    public long getTickCount() {
+        return this.tick.getCount();
+    }
+
+    @Override
+    public double getTickP99Millis() {
+        return this.tick.getP99() / 1e6;
+    }
+
+    @Override
+    public double getTickJitterP99Millis() {
+        return this.tickJitter.getP99() / 1e6;
+    }
+
+    @Override
+    public double getAllocatedBytesPerTick() {
+        return this.tickAllocation.getMean();
+    }
+
+    @Override
+    public double getLevelLoadMaxMillis() {
+        return this.levelLoad.getMax() / 1e6;
+    }
+
+    @Override
+    public long getDotsEaten() {
+        return this.dotsEaten;
+    }
+
+    @Override
+    public long getGhostsEaten() {
+        return this.ghostsEaten;
+    }
+
+    @Override
+    public long getDeaths() {
+        return this.deaths;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+    @Override
+    public long getLateFrameCount() {
+        return this.lateFrameCount;
+    }
+
+    @Override
+    public long getDroppedStepFrameCount() {
+        return this.droppedStepFrameCount;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * What GameMetrics publishes through JMX, besides the Histogram of each phase: the headline latencies and the event
+ * counters.
+ */
+
+package finalPacman;
+
+public interface GameMetricsMBean {
+    long getTickCount();
+
+    double getTickP99Millis();
+
+    double getTickJitterP99Millis();
+
+    double getAllocatedBytesPerTick();
+
+    double getLevelLoadMaxMillis();
+
+    long getDotsEaten();
+
+    long getGhostsEaten();
+
+    long getDeaths();
+
+    long getFrameCount();
+
+    /**
+     * @return the number of frames that came more than twice the average frame interval after the one before
+     */
+    long getLateFrameCount();
+
+    /**
+     * @return the number of frames on which the game loop had fallen so far behind that it skipped steps
+     */
+    long getDroppedStepFrameCount();
+
+    /**
+     * Zeroes the histograms and counters
+     */
+    void reset();
+}
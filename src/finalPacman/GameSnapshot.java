@@ -0,0 +1,73 @@
+/**
+ * The state of a game at one tick, taken by PacManModel.saveSnapshot() and put back by PacManModel.restore(). The
+ * board is not copied: since the only change a game makes to its board is eating dots, the snapshot keeps the cells
+ * eaten since the level started, in the order they were eaten, and the level is enough to rebuild the rest. Taking a
+ * snapshot therefore costs the actors and counters plus one int per dot eaten so far in the level.
+ *
+ * A snapshot can be filled again and again, as RewindBuffer does with one per tick; its arrays only grow, so refilling
+ * it does not allocate once it has held the largest state of the game. A snapshot can be restored into any model
+ * playing the same LevelCatalog, so a search can branch from it on several models.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public final class GameSnapshot {
+    //filled and read by PacManModel
+    int tickCount;
+    int level;
+    int score;
+    int dotCount;
+    boolean gameOver;
+    boolean youWon;
+    boolean ghostEatingMode;
+    int ghostEatingModeCounter;
+    int pacmanLocation;
+    int previousPacmanLocation;
+    Direction pacmanVelocity;
+    Direction lastDirection;
+    Direction currentDirection;
+    int ghostCount;
+    int[] ghostLocations = new int[0];
+    int[] previousGhostLocations = new int[0];
+    byte[] ghostVelocities = new byte[0];
+    byte[] ghostStates = new byte[0];
+    long randomState;
+    long zobristHash;
+    int eatenCellCount;
+    int[] eatenCells = new int[0];
+
+    /**
+     * @return the number of steps the game had taken
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the model's getZobristHash() when the snapshot was taken
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return the number of cells eaten since the level started, which is what the size of the snapshot depends on
+     */
+    public int getEatenCellCount() {
+        return eatenCellCount;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Decides which way a ghost wants to go on each step. The Model asks the ghost's strategy for a direction and moves
+ * the ghost that way; if the direction would hit a wall, the Model picks a random direction that does not.
+ * Strategies should not allocate, since they run for every ghost on every step.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public interface GhostStrategy {
+    /**
+     * @param model the game the ghost is in
+     * @param ghost the index of the ghost to move
+     * @return the direction the ghost should try to move in
+     */
+    Direction chooseDirection(PacManModel model, int ghost);
+}
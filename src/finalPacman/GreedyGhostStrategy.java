@@ -0,0 +1,16 @@
+/**
+ * Takes the exit that is closest to PacMan as the crow flies (Manhattan distance, ignoring walls), or furthest away
+ * in ghostEatingMode. Cheap and needs no tables, but gets stuck behind walls.
+ */
+
+package finalPacman;
+
+public class GreedyGhostStrategy extends DistanceGhostStrategy {
+    @Override
+    protected int distance(PacManModel model, int ghost, int location) {
+        int columnCount = model.getColumnCount();
+        int row = location / columnCount;
+        int column = location - row * columnCount;
+        return Math.abs(row - model.getPacmanRow()) + Math.abs(column - model.getPacmanColumn());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Drives the PacManModel from a plain loop without starting the JavaFX toolkit, and reports how many ticks per second
+ * the simulation sustains. PacMan changes to a random direction every few ticks and a new game is started whenever
+ * the current one ends. Each thread steps its own independent PacManModel. Afterwards the heap allocated by step()
+ * itself is measured with the thread allocation counter, which should stay at zero bytes per step.
+ *
+ * Usage: java finalPacman.HeadlessRunner [ticks per thread] [threads]
+ */
+
+package finalPacman;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class HeadlessRunner {
+    private static final int DEFAULT_TICKS = 1_000_000;
+    private static final int TICKS_PER_DIRECTION_CHANGE = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        int ticks = DEFAULT_TICKS;
+        int threadCount = 1;
+        if (args.length > 0) {
+            ticks = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            threadCount = Integer.parseInt(args[1]);
+        }
+        final int ticksPerThread = ticks;
+        final int[] gamesPlayed = new int[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        long startTime = System.nanoTime();
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> gamesPlayed[index] = run(new PacManModel(), ticksPerThread));
+            threads[i].start();
+        }
+        int totalGames = 0;
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+            totalGames += gamesPlayed[i];
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long totalTicks = (long) ticksPerThread * threadCount;
+        System.out.printf("%d ticks, %d games on %d threads in %.3f s (%.0f ticks/s)%n",
+                totalTicks, totalGames, threadCount, seconds, totalTicks / seconds);
+        System.out.printf("%.2f bytes allocated per step%n", measureStepAllocation(new PacManModel(), ticksPerThread));
+    }
+
+    /**
+     * Step a model for the given number of ticks, starting a new game whenever the current one ends
+     * @param model the game to drive
+     * @param ticks the number of calls to step
+     * @return the number of games that ended during the run
+     */
+    public static int run(PacManModel model, int ticks) {
+        Random generator = new Random();
+        PacManModel.Direction direction = PacManModel.Direction.NONE;
+        int gamesPlayed = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (tick % TICKS_PER_DIRECTION_CHANGE == 0) {
+                direction = model.intToDirection(generator.nextInt(4));
+            }
+            model.step(direction);
+            if (model.isGameOver()) {
+                gamesPlayed++;
+                model.startNewGame();
+            }
+        }
+        return gamesPlayed;
+    }
+
+    /**
+     * Step a model like run() does, but count the bytes the current thread allocates inside step() only, leaving out
+     * the input policy and the starting of new games
+     * @param model the game to drive
+     * @param ticks the number of calls to step
+     * @return the average number of bytes allocated per step
+     */
+    public static double measureStepAllocation(PacManModel model, int ticks) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Random generator = new Random();
+        PacManModel.Direction direction = PacManModel.Direction.NONE;
+        long allocatedBytes = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (tick % TICKS_PER_DIRECTION_CHANGE == 0) {
+                direction = model.intToDirection(generator.nextInt(4));
+            }
+            long before = threadBean.getCurrentThreadAllocatedBytes();
+            model.step(direction);
+            allocatedBytes += threadBean.getCurrentThreadAllocatedBytes() - before;
+            if (model.isGameOver()) {
+                model.startNewGame();
+            }
+        }
+        return (double) allocatedBytes / ticks;
+    }
+}
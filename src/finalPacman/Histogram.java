@@ -0,0 +1,140 @@
+/**
+ * A histogram of non-negative long values, such as durations in nanoseconds or byte counts, in the style of an HDR
+ * histogram: values are counted in buckets whose width grows with the value, 32 buckets for every power of two, so
+ * every value is kept to within about 3% whatever its size, in a fixed array of counts. Recording a value is a few
+ * shifts and an increment, and never allocates.
+ *
+ * One thread records; any thread may read, for example through JMX, and sees the counts as of some recent moment,
+ * which may be a value or two out of step with the total.
+ */
+
+package finalPacman;
+
+import java.util.Arrays;
+
+public final class Histogram implements HistogramMBean {
+    //each power of two is split into 2^SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    //values below SUB_BUCKET_COUNT get a bucket each, and every power of two above them gets SUB_BUCKET_COUNT / 2
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT / 2;
+
+    private final String name;
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    /**
+     * @param name what is measured, with its unit, such as "tick nanoseconds"
+     */
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param value a value, counted as 0 if it is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[bucket(value)]++;
+        this.totalCount++;
+        this.sum += value;
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        //the value's top SUB_BUCKET_BITS bits pick the bucket within its power of two
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT / 2 + (int) (value >>> shift) - SUB_BUCKET_COUNT / 2;
+    }
+
+    //the largest value counted in a bucket
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKET_COUNT) / (SUB_BUCKET_COUNT / 2) + 1;
+        long subBucket = (bucket - SUB_BUCKET_COUNT) % (SUB_BUCKET_COUNT / 2) + SUB_BUCKET_COUNT / 2;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return a value that at least that percentage of the recorded values are no greater than, to within the
+     * histogram's precision, or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = this.totalCount;
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += this.counts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValue(bucket), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Forgets every value recorded
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getCount() {
+        return this.totalCount;
+    }
+
+    @Override
+    public double getMean() {
+        return this.totalCount == 0 ? 0 : (double) this.sum / this.totalCount;
+    }
+
+    @Override
+    public long getMax() {
+        return this.max;
+    }
+
+    @Override
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP90() {
+        return getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+}
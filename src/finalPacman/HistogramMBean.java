@@ -0,0 +1,28 @@
+/**
+ * What a Histogram publishes through JMX. The values are in the unit named by getName().
+ */
+
+package finalPacman;
+
+public interface HistogramMBean {
+    String getName();
+
+    long getCount();
+
+    double getMean();
+
+    long getMax();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+    long getP999();
+
+    /**
+     * Forgets every value recorded
+     */
+    void reset();
+}
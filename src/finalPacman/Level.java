@@ -0,0 +1,190 @@
+/**
+ * An immutable level: the starting cell codes of the board together with the metadata the Model needs to start the
+ * level (its size, the home cells of PacMan and the ghosts, and how many dots there are to eat). The level has one
+ * ghost for every ghost home. A level is read either from the W/E/S/B/G/P text format by LevelParser or from the
+ * compiled binary format by LevelCompiler, or generated by MazeGenerator, and a fresh Board is copied out of it every
+ * time the level is started. The starting cells are themselves kept on a Board, so those of a level large enough to be
+ * mapped (see Board.create()) are off the heap too.
+ */
+
+package finalPacman;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class Level {
+    public static final String TEXT_EXTENSION = ".txt";
+    public static final String COMPILED_EXTENSION = ".lvl";
+
+    private final String name;
+    private final int rowCount;
+    private final int columnCount;
+    private final Board cells;
+    private final int pacmanHome;
+    private final int[] ghostHomes;
+    private final int dotCount;
+
+    /**
+     * @param name the file the level was read from, used in error messages
+     * @param rowCount
+     * @param columnCount
+     * @param cells the starting cells; the level takes ownership of the board and never changes it
+     * @param pacmanHome the flat Board index of PacMan's home cell
+     * @param ghostHomes the flat Board index of each ghost's home cell
+     * @param dotCount the number of SMALLDOT and BIGDOT cells
+     */
+    Level(String name, int rowCount, int columnCount, Board cells, int pacmanHome, int[] ghostHomes, int dotCount) {
+        this.name = name;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.cells = cells;
+        this.pacmanHome = pacmanHome;
+        this.ghostHomes = ghostHomes;
+        this.dotCount = dotCount;
+    }
+
+    /**
+     * Reads a level file, choosing the format from its extension: compiled levels end in COMPILED_EXTENSION and
+     * everything else is parsed as text
+     * @param fileName the path of the level file
+     * @return the level
+     * @throws LevelFormatException if the file is not a well-formed level
+     * @throws java.io.UncheckedIOException if the file cannot be read
+     */
+    public static Level load(String fileName) {
+        return load(Paths.get(fileName));
+    }
+
+    /**
+     * Reads a level file, which may also be inside a jar, choosing the format from its extension
+     * @param path the level file
+     * @return the level
+     * @throws LevelFormatException if the file is not a well-formed level
+     * @throws java.io.UncheckedIOException if the file cannot be read
+     */
+    public static Level load(Path path) {
+        if (path.getFileName().toString().endsWith(COMPILED_EXTENSION)) {
+            return LevelCompiler.read(path);
+        }
+        return LevelParser.parse(path);
+    }
+
+    /**
+     * Writes the level to a file, choosing the format from its extension like load() does
+     * @param path the level file to write, replacing any existing file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void write(Path path) {
+        if (path.getFileName().toString().endsWith(COMPILED_EXTENSION)) {
+            LevelCompiler.write(this, path);
+            return;
+        }
+        //a letter and a space or newline for every cell, written as they are made, as a large level's text does not fit
+        //on the heap
+        try (OutputStream text = new BufferedOutputStream(Files.newOutputStream(path))) {
+            for (int row = 0; row < rowCount; row++) {
+                for (int column = 0; column < columnCount; column++) {
+                    byte value = cells.get(row, column);
+                    if (value == Board.WALL) {
+                        text.write('W');
+                    }
+                    else if (value == Board.SMALLDOT) {
+                        text.write('S');
+                    }
+                    else if (value == Board.BIGDOT) {
+                        text.write('B');
+                    }
+                    else if (value == Board.GHOSTHOME) {
+                        text.write('G');
+                    }
+                    else if (value == Board.PACMANHOME) {
+                        text.write('P');
+                    }
+                    else {
+                        text.write('E');
+                    }
+                    text.write(column == columnCount - 1 ? '\n' : ' ');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write level " + path, e);
+        }
+    }
+
+    /**
+     * @return a new Board holding the starting cells of the level, which the game is free to change; it is a mapped
+     * board if the level has at least Board.MAPPED_CELL_COUNT cells
+     */
+    public Board createBoard() {
+        Board board = Board.create(rowCount, columnCount);
+        board.copyFrom(cells);
+        return board;
+    }
+
+    /**
+     * Restores the starting cells of the level into a board that is no longer needed, which saves allocating (or for
+     * a large level, mapping) a new one each time a level starts
+     * @param board a board from an earlier createBoard(), or null
+     * @return the board, if it has the size of this level, or else a new board from createBoard()
+     */
+    public Board resetBoard(Board board) {
+        if (board == null || board.getRowCount() != rowCount || board.getColumnCount() != columnCount
+                || board.isMapped() != Board.isMapped(rowCount, columnCount)) {
+            return createBoard();
+        }
+        board.copyFrom(cells);
+        return board;
+    }
+
+    /**
+     * @return the Board of the level's own cells, for reading only, such as building the level's tables
+     */
+    Board templateBoard() {
+        return cells;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @param index a flat Board index
+     * @return the starting cell code at that index
+     */
+    public byte getCell(int index) {
+        return cells.get(index);
+    }
+
+    public int getPacmanHome() {
+        return pacmanHome;
+    }
+
+    public int getGhostCount() {
+        return ghostHomes.length;
+    }
+
+    /**
+     * @param ghost the number of the ghost, from 0
+     * @return the flat Board index of the ghost's home cell
+     */
+    public int getGhostHome(int ghost) {
+        return ghostHomes[ghost];
+    }
+
+    public int getDotCount() {
+        return dotCount;
+    }
+}
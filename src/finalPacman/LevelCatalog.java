@@ -0,0 +1,317 @@
+/**
+ * The ordered list of levels a game plays through. A catalog only holds the paths of its level files (or the seeds of
+ * its generated mazes): each level is read or generated and prepared (see PreparedLevel) the first time it is asked
+ * for, and only the most recently used levels are kept, so a catalog of hundreds of levels costs almost nothing until
+ * they are played.
+ *
+ * While one level is being played the Model calls prefetch() for the next one, which reads and prepares it on a
+ * background thread, so when the level is cleared the next one is usually ready and starting it does not stall the
+ * game. A catalog may be shared by any number of games on any number of threads; each level is prepared at most once
+ * while it is cached.
+ *
+ * Levels can be listed explicitly, discovered in a directory, discovered in a directory on the classpath (also inside
+ * a jar), or generated by a MazeGenerator from consecutive seeds. Discovered levels are the .txt and .lvl files of the
+ * directory, in natural order of their names (so level2 comes before level10); when a level exists in both formats the
+ * compiled one is used.
+ */
+
+package finalPacman;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+public final class LevelCatalog {
+    public static final String DEFAULT_DIRECTORY = "src/levels";
+    public static final String DEFAULT_RESOURCE_DIRECTORY = "/levels";
+    //enough for the levels in play in every game sharing the catalog without holding on to hundreds of them
+    private static final int CACHED_LEVELS = 8;
+
+    private final int size;
+    private final IntFunction<String> names;
+    private final IntFunction<Level> loader;
+    private final Map<Integer, CompletableFuture<PreparedLevel>> preparedLevels;
+    private ExecutorService preloader;
+
+    /**
+     * @param size the number of levels
+     * @param names the name of each level
+     * @param loader reads or generates each level
+     */
+    private LevelCatalog(int size, IntFunction<String> names, IntFunction<Level> loader) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("a level catalog needs at least one level");
+        }
+        this.size = size;
+        this.names = names;
+        this.loader = loader;
+        this.preparedLevels = new LinkedHashMap<Integer, CompletableFuture<PreparedLevel>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<PreparedLevel>> eldest) {
+                return size() > CACHED_LEVELS;
+            }
+        };
+    }
+
+    /**
+     * @param fileNames the level files, in order of play
+     * @return a catalog of exactly those levels
+     */
+    public static LevelCatalog of(String... fileNames) {
+        List<Path> levelFiles = new ArrayList<>();
+        for (String fileName : fileNames) {
+            levelFiles.add(Paths.get(fileName));
+        }
+        return ofFiles(levelFiles);
+    }
+
+    private static LevelCatalog ofFiles(List<Path> files) {
+        List<Path> levelFiles = Collections.unmodifiableList(new ArrayList<>(files));
+        return new LevelCatalog(levelFiles.size(), index -> levelFiles.get(index).toString(),
+                index -> Level.load(levelFiles.get(index)));
+    }
+
+    /**
+     * @param generator generates the mazes
+     * @param firstSeed the seed of the first level; level i is generated from seed firstSeed + i
+     * @param levelCount the number of levels
+     * @return a catalog of generated mazes, each generated the first time it is needed
+     */
+    public static LevelCatalog generated(MazeGenerator generator, long firstSeed, int levelCount) {
+        return new LevelCatalog(levelCount, index -> "maze seed " + (firstSeed + index),
+                index -> generator.generate(firstSeed + index));
+    }
+
+    /**
+     * @param directory a directory of level files
+     * @return a catalog of the levels in the directory
+     * @throws UncheckedIOException if the directory cannot be listed
+     */
+    public static LevelCatalog fromDirectory(Path directory) {
+        return ofFiles(discover(directory));
+    }
+
+    /**
+     * @param resourceDirectory an absolute resource path, such as "/levels"
+     * @return a catalog of the levels in that directory of the classpath
+     * @throws IllegalArgumentException if the directory is not on the classpath
+     * @throws UncheckedIOException if the directory cannot be listed
+     */
+    public static LevelCatalog fromClasspath(String resourceDirectory) {
+        URL url = LevelCatalog.class.getResource(resourceDirectory);
+        if (url == null) {
+            throw new IllegalArgumentException("no level directory " + resourceDirectory + " on the classpath");
+        }
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try {
+                    FileSystems.newFileSystem(uri, Collections.emptyMap());
+                } catch (FileSystemAlreadyExistsException e) {
+                    //already opened by an earlier catalog
+                }
+            }
+            return ofFiles(discover(Paths.get(uri)));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("bad level directory " + url, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open level directory " + url, e);
+        }
+    }
+
+    /**
+     * @return the levels shipped with the game: those in DEFAULT_DIRECTORY when running from the source tree, or
+     * otherwise those in DEFAULT_RESOURCE_DIRECTORY on the classpath
+     */
+    public static LevelCatalog getDefault() {
+        Path directory = Paths.get(DEFAULT_DIRECTORY);
+        if (Files.isDirectory(directory)) {
+            return fromDirectory(directory);
+        }
+        return fromClasspath(DEFAULT_RESOURCE_DIRECTORY);
+    }
+
+    private static List<Path> discover(Path directory) {
+        //keyed by the name without its extension, so a compiled level replaces its text source
+        Map<String, Path> levels = new TreeMap<>(LevelCatalog::compareNatural);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(Level.COMPILED_EXTENSION)) {
+                    levels.put(baseName(fileName, Level.COMPILED_EXTENSION), file);
+                }
+                else if (fileName.endsWith(Level.TEXT_EXTENSION)) {
+                    levels.putIfAbsent(baseName(fileName, Level.TEXT_EXTENSION), file);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot list level directory " + directory, e);
+        }
+        return new ArrayList<>(levels.values());
+    }
+
+    private static String baseName(String fileName, String extension) {
+        return fileName.substring(0, fileName.length() - extension.length());
+    }
+
+    /**
+     * Compares names with any runs of digits compared by their numeric value
+     */
+    static int compareNatural(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            char a = first.charAt(i);
+            char b = second.charAt(j);
+            if (Character.isDigit(a) && Character.isDigit(b)) {
+                int endA = i;
+                int endB = j;
+                while (endA < first.length() && Character.isDigit(first.charAt(endA))) {
+                    endA++;
+                }
+                while (endB < second.length() && Character.isDigit(second.charAt(endB))) {
+                    endB++;
+                }
+                //compare by length after leading zeros, then digit by digit, so any number of digits works
+                String numberA = stripLeadingZeros(first.substring(i, endA));
+                String numberB = stripLeadingZeros(second.substring(j, endB));
+                int result = numberA.length() != numberB.length()
+                        ? Integer.compare(numberA.length(), numberB.length()) : numberA.compareTo(numberB);
+                if (result != 0) {
+                    return result;
+                }
+                i = endA;
+                j = endB;
+            }
+            else {
+                if (a != b) {
+                    return Character.compare(a, b);
+                }
+                i++;
+                j++;
+            }
+        }
+        int result = Integer.compare(first.length() - i, second.length() - j);
+        return result != 0 ? result : first.compareTo(second);
+    }
+
+    private static String stripLeadingZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return number.substring(start);
+    }
+
+    /**
+     * @return the number of levels in the catalog
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the 0-based index of the level
+     * @return the level file, or a description of a generated level
+     */
+    public String getLevelName(int index) {
+        return names.apply(index);
+    }
+
+    /**
+     * Returns a level with its tables, loading and preparing it on the calling thread unless it is already cached
+     * or being prepared in the background, in which case this waits for it
+     * @param index the 0-based index of the level
+     * @return the prepared level
+     * @throws LevelFormatException if the level file is not a well-formed level
+     * @throws IndexOutOfBoundsException if there is no such level
+     * @throws UncheckedIOException if the level file cannot be read
+     */
+    public PreparedLevel get(int index) {
+        CompletableFuture<PreparedLevel> future;
+        boolean prepareHere = false;
+        synchronized (preparedLevels) {
+            future = preparedLevels.get(index);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                preparedLevels.put(index, future);
+                prepareHere = true;
+            }
+        }
+        if (prepareHere) {
+            prepare(index, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts reading and preparing a level on the background thread, unless it is already cached or being prepared.
+     * Indices past the end of the catalog are ignored.
+     * @param index the 0-based index of the level
+     */
+    public void prefetch(int index) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        CompletableFuture<PreparedLevel> future;
+        ExecutorService executor;
+        synchronized (preparedLevels) {
+            if (preparedLevels.containsKey(index)) {
+                return;
+            }
+            future = new CompletableFuture<>();
+            preparedLevels.put(index, future);
+            if (preloader == null) {
+                preloader = Executors.newSingleThreadExecutor(task -> {
+                    Thread thread = new Thread(task, "level-preloader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            executor = preloader;
+        }
+        executor.execute(() -> prepare(index, future));
+    }
+
+    private void prepare(int index, CompletableFuture<PreparedLevel> future) {
+        try {
+            future.complete(PreparedLevel.prepare(loader.apply(index)));
+        } catch (Throwable e) {
+            //any failure, even an Error such as running out of memory on a huge level, must fail the future, or whoever
+            //waits on it waits forever; it is forgotten, so the level is read again the next time it is asked for
+            synchronized (preparedLevels) {
+                preparedLevels.remove(index, future);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Converts text levels to the compiled binary level format and reads compiled levels back. A compiled level is a
+ * fixed header followed by the raw Board cell codes, so loading one is a memory-mapped read of the file with a single
+ * bulk copy into the board array and no parsing at all. (Levels inside a jar cannot be mapped and are read into a heap
+ * buffer instead.) A level large enough for a mapped Board is copied from the mapped file into its board a chunk row at
+ * a time, and written out a row at a time, so neither needs its cells on the heap. All numbers are big-endian ints:
+ *
+ *   magic "PACL", format version, rowCount, columnCount, dotCount, pacmanHome, ghostCount,
+ *   ghostCount ghost home indices, then rowCount * columnCount cell code bytes
+ *
+ * Usage: java finalPacman.LevelCompiler [text level files]
+ * Each file is written next to its source with the extension changed to .lvl. With no arguments the levels shipped
+ * in src/levels are converted, and from then on the LevelCatalog picks the compiled levels over the text ones.
+ */
+
+package finalPacman;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LevelCompiler {
+    private static final int MAGIC = 0x5041434C;
+    //version 2 has a single ghost home cell code
+    private static final int VERSION = 2;
+    //magic, version, rowCount, columnCount, dotCount, pacmanHome, ghostCount
+    private static final int HEADER_INTS = 7;
+
+    private LevelCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        if (args.length > 0) {
+            for (String fileName : args) {
+                sources.add(Paths.get(fileName));
+            }
+        }
+        else {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(LevelCatalog.DEFAULT_DIRECTORY), "*" + Level.TEXT_EXTENSION)) {
+                files.forEach(sources::add);
+            }
+        }
+        for (Path source : sources) {
+            Path target = compiledPath(source);
+            Level level = LevelParser.parse(source);
+            write(level, target);
+            System.out.printf("%s -> %s (%d x %d, %d dots, %d bytes)%n", source, target,
+                    level.getRowCount(), level.getColumnCount(), level.getDotCount(), compiledSize(level));
+        }
+    }
+
+    /**
+     * @param source a text level file
+     * @return the path of the compiled level with the same name in the same directory
+     */
+    public static Path compiledPath(Path source) {
+        String fileName = source.getFileName().toString();
+        if (fileName.endsWith(Level.TEXT_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - Level.TEXT_EXTENSION.length());
+        }
+        return source.resolveSibling(fileName + Level.COMPILED_EXTENSION);
+    }
+
+    private static long compiledSize(Level level) {
+        return 4L * (HEADER_INTS + level.getGhostCount()) + (long) level.getRowCount() * level.getColumnCount();
+    }
+
+    /**
+     * Writes a level in the compiled format, replacing any existing file
+     * @param level the level to write
+     * @param target the compiled level file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void write(Level level, Path target) {
+        ByteBuffer header = ByteBuffer.allocate(4 * (HEADER_INTS + level.getGhostCount()));
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(level.getRowCount());
+        header.putInt(level.getColumnCount());
+        header.putInt(level.getDotCount());
+        header.putInt(level.getPacmanHome());
+        header.putInt(level.getGhostCount());
+        for (int ghost = 0; ghost < level.getGhostCount(); ghost++) {
+            header.putInt(level.getGhostHome(ghost));
+        }
+        header.flip();
+        Board cells = level.templateBoard();
+        ByteBuffer row = ByteBuffer.allocate(level.getColumnCount());
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (int r = 0; r < level.getRowCount(); r++) {
+                row.clear();
+                for (int column = 0; column < level.getColumnCount(); column++) {
+                    row.put(cells.get(r, column));
+                }
+                row.flip();
+                while (row.hasRemaining()) {
+                    channel.write(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write compiled level " + target, e);
+        }
+    }
+
+    /**
+     * Reads a compiled level by mapping the file into memory
+     * @param path the compiled level file
+     * @return the level
+     * @throws LevelFormatException if the file is not a compiled level of this version or is damaged
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Level read(Path path) {
+        String name = path.toString();
+        try {
+            if (path.getFileSystem() != FileSystems.getDefault()) {
+                return read(name, ByteBuffer.wrap(Files.readAllBytes(path)));
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return read(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read compiled level " + path, e);
+        }
+    }
+
+    private static Level read(String name, ByteBuffer buffer) {
+        long size = buffer.remaining();
+        if (size < 4 * HEADER_INTS) {
+            throw new LevelFormatException(name + ": too short to be a compiled level");
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new LevelFormatException(name + ": not a compiled level");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new LevelFormatException(name + ": compiled level version " + version + " is not supported, recompile it with LevelCompiler");
+        }
+        int rowCount = buffer.getInt();
+        int columnCount = buffer.getInt();
+        int dotCount = buffer.getInt();
+        int pacmanHome = buffer.getInt();
+        int ghostCount = buffer.getInt();
+        long cellCount = (long) rowCount * columnCount;
+        if (rowCount <= 0 || columnCount <= 0 || ghostCount < 0
+                || size != 4L * (HEADER_INTS + ghostCount) + cellCount) {
+            throw new LevelFormatException(name + ": the header does not match the size of the file");
+        }
+        int[] ghostHomes = new int[ghostCount];
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            ghostHomes[ghost] = buffer.getInt();
+            checkHome(name, ghostHomes[ghost], cellCount);
+        }
+        checkHome(name, pacmanHome, cellCount);
+        if (cellCount > Integer.MAX_VALUE) {
+            throw new LevelFormatException(name + ": a board of " + cellCount + " cells is too large");
+        }
+        //the header is checked against the cells the way LevelParser builds it, so a stale or damaged file cannot
+        //give a level that never completes; the cells are checked in the file, before anything is copied
+        int cellStart = buffer.position();
+        int cellDotCount = 0;
+        int pacmanHomeCount = 0;
+        for (int index = 0; index < cellCount; index++) {
+            byte cell = buffer.get(cellStart + index);
+            if (cell < Board.EMPTY || cell > Board.PACMANHOME) {
+                throw new LevelFormatException(name + ": unknown cell code " + cell);
+            }
+            if (cell == Board.SMALLDOT || cell == Board.BIGDOT) {
+                cellDotCount++;
+            }
+            else if (cell == Board.PACMANHOME) {
+                pacmanHomeCount++;
+            }
+        }
+        if (dotCount != cellDotCount) {
+            throw new LevelFormatException(name + ": the header gives " + dotCount + " dots but the board has " + cellDotCount);
+        }
+        if (pacmanHomeCount != 1 || buffer.get(cellStart + pacmanHome) != Board.PACMANHOME) {
+            throw new LevelFormatException(name + ": PacMan's home " + pacmanHome + " is not the board's one PacMan home cell");
+        }
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            if (buffer.get(cellStart + ghostHomes[ghost]) != Board.GHOSTHOME) {
+                throw new LevelFormatException(name + ": the home of ghost " + ghost + " is not a ghost home cell");
+            }
+        }
+        Board cells = Board.create(rowCount, columnCount);
+        cells.copyFrom(buffer);
+        return new Level(name, rowCount, columnCount, cells, pacmanHome, ghostHomes, dotCount);
+    }
+
+    private static void checkHome(String name, int home, long cellCount) {
+        if (home < 0 || home >= cellCount) {
+            throw new LevelFormatException(name + ": home cell " + home + " is outside the board");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Thrown when a level file cannot be turned into a Level: a ragged row, an unknown cell, a missing or repeated PacMan
+ * home, or a damaged compiled level. The message names the file and, for text levels, the line at fault.
+ */
+
+package finalPacman;
+
+public class LevelFormatException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LevelFormatException(String message) {
+        super(message);
+    }
+}
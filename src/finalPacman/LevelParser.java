@@ -0,0 +1,136 @@
+/**
+ * Reads the text level format in a single pass over the bytes of the file. Each non-blank line is a row of the board
+ * and each cell is one of the letters W (wall), E (empty), S (small dot), B (big dot), G (the home of a ghost) or
+ * P (PacMan's home), separated by spaces or tabs. The level has one ghost for every G, numbered in reading order;
+ * 1 and 2 are read as G, so the levels written for two ghosts still load. Every row must have as many cells as the
+ * first one and PacMan must have exactly one home; anything else is reported as a LevelFormatException naming the
+ * line.
+ */
+
+package finalPacman;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public final class LevelParser {
+    private LevelParser() {
+    }
+
+    /**
+     * @param path the text level file
+     * @return the level
+     * @throws LevelFormatException if the file is not a well-formed level
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Level parse(Path path) {
+        byte[] text;
+        try {
+            text = Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read level " + path, e);
+        }
+        return parse(path.toString(), text);
+    }
+
+    /**
+     * @param name the name to use for the level in error messages
+     * @param text the contents of a text level file
+     * @return the level
+     * @throws LevelFormatException if the text is not a well-formed level
+     */
+    public static Level parse(String name, byte[] text) {
+        //every cell takes at least one letter and one separator, so this is enough room for any level
+        byte[] cells = new byte[text.length / 2 + 1];
+        int cellCount = 0;
+        int rowCount = 0;
+        int columnCount = -1;
+        int dotCount = 0;
+        int pacmanHome = -1;
+        int[] ghostHomes = new int[8];
+        int ghostCount = 0;
+        int line = 1;
+        int column = 0;
+        int position = 0;
+        while (position <= text.length) {
+            int character = position < text.length ? text[position] : '\n';
+            position++;
+            if (character == '\n') {
+                //blank lines are skipped
+                if (column > 0) {
+                    if (columnCount < 0) {
+                        columnCount = column;
+                    }
+                    else if (column != columnCount) {
+                        throw error(name, line, "row " + rowCount + " has " + column + " cells but the rows above it have " + columnCount);
+                    }
+                    rowCount++;
+                }
+                column = 0;
+                line++;
+                continue;
+            }
+            if (character == ' ' || character == '\t' || character == '\r') {
+                continue;
+            }
+            if (position < text.length && !isSeparator(text[position])) {
+                throw error(name, line, "cells must be single letters separated by spaces");
+            }
+            if (columnCount >= 0 && column == columnCount) {
+                throw error(name, line, "row " + rowCount + " has more than the " + columnCount + " cells of the rows above it");
+            }
+            byte value;
+            if (character == 'W') {
+                value = Board.WALL;
+            }
+            else if (character == 'E') {
+                value = Board.EMPTY;
+            }
+            else if (character == 'S') {
+                value = Board.SMALLDOT;
+                dotCount++;
+            }
+            else if (character == 'B') {
+                value = Board.BIGDOT;
+                dotCount++;
+            }
+            else if (character == 'G' || character == '1' || character == '2') {
+                if (ghostCount == ghostHomes.length) {
+                    ghostHomes = Arrays.copyOf(ghostHomes, 2 * ghostCount);
+                }
+                value = Board.GHOSTHOME;
+                ghostHomes[ghostCount++] = cellCount;
+            }
+            else if (character == 'P') {
+                if (pacmanHome >= 0) {
+                    throw error(name, line, "PacMan has more than one home");
+                }
+                value = Board.PACMANHOME;
+                pacmanHome = cellCount;
+            }
+            else {
+                throw error(name, line, "unknown cell '" + (char) character + "', expected one of W E S B G P");
+            }
+            cells[cellCount++] = value;
+            column++;
+        }
+        if (rowCount == 0) {
+            throw new LevelFormatException(name + ": the level has no rows");
+        }
+        if (pacmanHome < 0) {
+            throw new LevelFormatException(name + ": the level has no PacMan home (P)");
+        }
+        Board board = Board.of(rowCount, columnCount, Arrays.copyOf(cells, cellCount));
+        return new Level(name, rowCount, columnCount, board, pacmanHome, Arrays.copyOf(ghostHomes, ghostCount), dotCount);
+    }
+
+    private static boolean isSeparator(byte character) {
+        return character == ' ' || character == '\t' || character == '\r' || character == '\n';
+    }
+
+    private static LevelFormatException error(String name, int line, String message) {
+        return new LevelFormatException(name + " line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * An immutable (row, column) position on the game board. Following the convention used throughout the game, x is the
+ * row and y is the column. Unlike javafx.geometry.Point2D this has no dependency on the JavaFX toolkit, so the model
+ * can run headless.
+ */
+
+package finalPacman;
+
+public final class Location {
+    private final int x;
+    private final int y;
+
+    public Location(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @param other the offset to add
+     * @return a new Location translated by the given offset
+     */
+    public Location add(Location other) {
+        return new Location(this.x + other.x, this.y + other.y);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Location)) {
+            return false;
+        }
+        Location location = (Location) other;
+        return this.x == location.x && this.y == location.y;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
+    @Override
+    public String toString() {
+        return "Location [x = " + x + ", y = " + y + "]";
+    }
+}
@@ -1,6 +1,13 @@
 /**
  * @author Jessie Baskauf and Ellie Mamantov
  * Sets up the controller, loads the fxml file, and runs the application.
+ * Pass --view=canvas to draw the board on a single canvas instead of one ImageView per cell, and --rate=N to step the
+ * game N times per second (5 by default). Pass --levels=DIRECTORY to play the .txt and .lvl levels found in another
+ * directory instead of the shipped ones, or --maze=ROWSxCOLUMNS to play freshly generated mazes of that size. The
+ * window shows 21 rows and 19 columns of the board around PacMan, or as many as --viewport=ROWSxCOLUMNS asks for.
+ * Pass --replays=DIRECTORY to save a replay of every game there, to be checked with ReplayEngine, and
+ * --autopilot=MILLIS to start with the autopilot steering PacMan, searching for that long on every step. Pass
+ * --metrics to measure the game from the start and publish the measurements through JMX; F3 shows them in the window.
  */
 
 package finalPacman;
@@ -11,12 +18,60 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.nio.file.Paths;
+
 
 public class Main extends Application {
+    //the number of mazes played with --maze, each from the next seed
+    private static final int MAZE_LEVELS = 100;
 
     @Override
     public void start(Stage primaryStage) throws Exception{
         FXMLLoader loader = new FXMLLoader(getClass().getResource("pacman.fxml"));
+        String viewType = getParameters().getNamed().getOrDefault("view", Controller.IMAGE_VIEW);
+        double stepsPerSecond = Double.parseDouble(getParameters().getNamed().getOrDefault("rate",
+                String.valueOf(Controller.DEFAULT_STEPS_PER_SECOND)));
+        String levelDirectory = getParameters().getNamed().get("levels");
+        String mazeSize = getParameters().getNamed().get("maze");
+        LevelCatalog levels;
+        if (mazeSize != null) {
+            String[] size = mazeSize.split("x");
+            MazeGenerator generator = new MazeGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                    MazeGenerator.DEFAULT_GHOST_COUNT);
+            levels = LevelCatalog.generated(generator, System.nanoTime(), MAZE_LEVELS);
+        }
+        else if (levelDirectory != null) {
+            levels = LevelCatalog.fromDirectory(Paths.get(levelDirectory));
+        }
+        else {
+            levels = LevelCatalog.getDefault();
+        }
+        String viewport = getParameters().getNamed().get("viewport");
+        int viewRowCount = 0;
+        int viewColumnCount = 0;
+        if (viewport != null) {
+            String[] size = viewport.split("x");
+            viewRowCount = Integer.parseInt(size[0]);
+            viewColumnCount = Integer.parseInt(size[1]);
+        }
+        int rows = viewRowCount;
+        int columns = viewColumnCount;
+        String replayDirectory = getParameters().getNamed().get("replays");
+        String autopilotBudget = getParameters().getNamed().get("autopilot");
+        boolean metrics = getParameters().getRaw().contains("--metrics");
+        loader.setControllerFactory(controllerClass -> {
+            Controller controller = new Controller(viewType, stepsPerSecond, levels, rows, columns);
+            if (replayDirectory != null) {
+                controller.setReplayDirectory(Paths.get(replayDirectory));
+            }
+            if (autopilotBudget != null) {
+                controller.setAutopilot(true, Long.parseLong(autopilotBudget));
+            }
+            if (metrics) {
+                controller.enableMetrics();
+            }
+            return controller;
+        });
         Parent root = loader.load();
         primaryStage.setTitle("PacMan");
         Controller controller = loader.getController();
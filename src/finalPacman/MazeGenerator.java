@@ -0,0 +1,271 @@
+/**
+ * Generates Pac-Man mazes of any size from a seed: one-cell-wide corridors separated by one-cell-wide walls, every
+ * corridor reachable from every other, no dead ends, wrap-around tunnels through the left and right edges, PacMan's
+ * home near the middle, the ghosts' homes spread out away from him, and a dot in every other open cell (a few of them
+ * big). The same seed always gives the same maze.
+ *
+ * Corridors run between the cells with odd row and column (the nodes). The node rows are split into bands that are
+ * carved independently, each with a random number generator derived from the seed and the band: a band's first row is
+ * a single corridor, the rows below it are joined with the sidewinder algorithm, and the band is connected to the one
+ * above it through a few openings. Then every dead end is opened into a neighboring corridor of the same band. A band
+ * only writes to its own rows, so big mazes are carved on all cores and still come out the same as on one. The maze is
+ * carved straight into a Board from Board.create(), so one large enough to be mapped never has its cells on the heap.
+ *
+ * Usage: java finalPacman.MazeGenerator rows columns [ghosts] [seed] [output file]
+ * The output file gets the text format, or the compiled format if its name ends in .lvl. Without an output file the
+ * maze is only generated and timed.
+ */
+
+package finalPacman;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public final class MazeGenerator {
+    public static final int MIN_SIZE = 7;
+    public static final int DEFAULT_GHOST_COUNT = 2;
+    private static final int BAND_NODE_ROWS = 32;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    //about one dot in this many is a big dot
+    private static final int BIG_DOT_ODDS = 100;
+    //about one tunnel for every this many node rows
+    private static final int NODE_ROWS_PER_TUNNEL = 12;
+    //about one opening into the band above for every this many node columns
+    private static final int NODE_COLUMNS_PER_BAND_OPENING = 8;
+    private static final long BAND_SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int ghostCount;
+    private final int nodeRowCount;
+    private final int nodeColumnCount;
+
+    /**
+     * @param rowCount the number of rows of the mazes, at least MIN_SIZE
+     * @param columnCount the number of columns of the mazes, at least MIN_SIZE
+     * @param ghostCount the number of ghosts
+     */
+    public MazeGenerator(int rowCount, int columnCount, int ghostCount) {
+        if (rowCount < MIN_SIZE || columnCount < MIN_SIZE) {
+            throw new IllegalArgumentException("a maze needs at least " + MIN_SIZE + " rows and columns");
+        }
+        if ((long) rowCount * columnCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a " + rowCount + "x" + columnCount + " maze does not fit in a Board");
+        }
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.ghostCount = ghostCount;
+        this.nodeRowCount = (rowCount - 1) / 2;
+        this.nodeColumnCount = (columnCount - 1) / 2;
+        //PacMan and every ghost need a node of their own
+        if (ghostCount < 0 || ghostCount >= (long) nodeRowCount * nodeColumnCount) {
+            throw new IllegalArgumentException("a " + rowCount + "x" + columnCount + " maze cannot hold " + ghostCount + " ghosts");
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: java finalPacman.MazeGenerator rows columns [ghosts] [seed] [output file]");
+            System.exit(1);
+        }
+        int rowCount = Integer.parseInt(args[0]);
+        int columnCount = Integer.parseInt(args[1]);
+        int ghostCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GHOST_COUNT;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        long startTime = System.nanoTime();
+        Level level = new MazeGenerator(rowCount, columnCount, ghostCount).generate(seed);
+        double milliseconds = (System.nanoTime() - startTime) / 1e6;
+        System.out.printf("%s: %d dots, generated in %.1f ms%n", level.getName(), level.getDotCount(), milliseconds);
+        if (args.length > 4) {
+            level.write(Paths.get(args[4]));
+        }
+    }
+
+    /**
+     * @param seed the seed of the maze
+     * @return a new maze
+     */
+    public Level generate(long seed) {
+        Board cells = Board.create(rowCount, columnCount);
+        int bandCount = (nodeRowCount + BAND_NODE_ROWS - 1) / BAND_NODE_ROWS;
+        boolean parallel = (long) nodeRowCount * nodeColumnCount >= PARALLEL_THRESHOLD;
+        IntStream bands = IntStream.range(0, bandCount);
+        if (parallel) {
+            bands = bands.parallel();
+        }
+        bands.forEach(band -> carveBand(cells, band, bandRandom(seed, band)));
+        //dead ends look at the walls between bands, so they are opened once every band has been carved
+        bands = IntStream.range(0, bandCount);
+        if (parallel) {
+            bands = bands.parallel();
+        }
+        int dotCount = bands.map(band -> braidAndFillBand(cells, band, bandRandom(seed, bandCount + band))).sum();
+        //the rows below the last node row are wall
+        for (int index = 2 * nodeRowCount * columnCount; index < rowCount * columnCount; index++) {
+            cells.set(index, Board.WALL);
+        }
+        Random random = new Random(seed);
+        openTunnels(cells, random);
+        int pacmanHome = node(nodeRowCount / 2, nodeColumnCount / 2);
+        dotCount -= isDot(cells.get(pacmanHome)) ? 1 : 0;
+        cells.set(pacmanHome, Board.PACMANHOME);
+        int[] ghostHomes = new int[ghostCount];
+        dotCount -= placeGhosts(cells, random, ghostHomes, nodeRowCount / 2, nodeColumnCount / 2);
+        //ghosts are numbered in reading order, as they are when the maze is written out and read back
+        Arrays.sort(ghostHomes);
+        String name = String.format("maze %dx%d seed %d", rowCount, columnCount, seed);
+        return new Level(name, rowCount, columnCount, cells, pacmanHome, ghostHomes, dotCount);
+    }
+
+    private static Random bandRandom(long seed, int band) {
+        return new Random(seed * BAND_SEED_MULTIPLIER + band);
+    }
+
+    private static boolean isDot(byte value) {
+        return value == Board.SMALLDOT || value == Board.BIGDOT;
+    }
+
+    //the flat Board index of a node
+    private int node(int nodeRow, int nodeColumn) {
+        return (2 * nodeRow + 1) * columnCount + 2 * nodeColumn + 1;
+    }
+
+    /**
+     * Carves the corridors of one band. The band owns its node rows and the wall row above each of them, and writes
+     * nothing else.
+     */
+    private void carveBand(Board cells, int band, Random random) {
+        int firstNodeRow = band * BAND_NODE_ROWS;
+        int endNodeRow = Math.min(firstNodeRow + BAND_NODE_ROWS, nodeRowCount);
+        for (int index = 2 * firstNodeRow * columnCount; index < 2 * endNodeRow * columnCount; index++) {
+            cells.set(index, Board.WALL);
+        }
+        for (int nodeRow = firstNodeRow; nodeRow < endNodeRow; nodeRow++) {
+            for (int nodeColumn = 0; nodeColumn < nodeColumnCount; nodeColumn++) {
+                cells.set(node(nodeRow, nodeColumn), Board.EMPTY);
+            }
+            if (nodeRow == firstNodeRow) {
+                //the first row of a band is one long corridor
+                for (int nodeColumn = 0; nodeColumn < nodeColumnCount - 1; nodeColumn++) {
+                    cells.set(node(nodeRow, nodeColumn) + 1, Board.EMPTY);
+                }
+                continue;
+            }
+            //sidewinder: extend a run of cells to the right, and when the run ends join one of its cells to the row above
+            int runStart = 0;
+            for (int nodeColumn = 0; nodeColumn < nodeColumnCount; nodeColumn++) {
+                if (nodeColumn == nodeColumnCount - 1 || random.nextBoolean()) {
+                    int up = runStart + random.nextInt(nodeColumn - runStart + 1);
+                    cells.set(node(nodeRow, up) - columnCount, Board.EMPTY);
+                    runStart = nodeColumn + 1;
+                }
+                else {
+                    cells.set(node(nodeRow, nodeColumn) + 1, Board.EMPTY);
+                }
+            }
+        }
+        if (band > 0) {
+            int openings = 1 + nodeColumnCount / NODE_COLUMNS_PER_BAND_OPENING;
+            for (int opening = 0; opening < openings; opening++) {
+                cells.set(node(firstNodeRow, random.nextInt(nodeColumnCount)) - columnCount, Board.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Opens every dead end of one band into a neighboring corridor and puts dots in the band's open cells. Only walls
+     * inside the band are opened, so the walls between bands, which the neighboring bands look at, never change.
+     * @return the number of dots placed
+     */
+    private int braidAndFillBand(Board cells, int band, Random random) {
+        int firstNodeRow = band * BAND_NODE_ROWS;
+        int endNodeRow = Math.min(firstNodeRow + BAND_NODE_ROWS, nodeRowCount);
+        int[] candidates = new int[4];
+        for (int nodeRow = firstNodeRow; nodeRow < endNodeRow; nodeRow++) {
+            for (int nodeColumn = 0; nodeColumn < nodeColumnCount; nodeColumn++) {
+                int location = node(nodeRow, nodeColumn);
+                int left = location - 1;
+                int right = location + 1;
+                int up = location - columnCount;
+                int down = location + columnCount;
+                int exits = 0;
+                exits += nodeColumn > 0 && cells.get(left) != Board.WALL ? 1 : 0;
+                exits += nodeColumn < nodeColumnCount - 1 && cells.get(right) != Board.WALL ? 1 : 0;
+                exits += nodeRow > 0 && cells.get(up) != Board.WALL ? 1 : 0;
+                exits += nodeRow < nodeRowCount - 1 && cells.get(down) != Board.WALL ? 1 : 0;
+                if (exits > 1) {
+                    continue;
+                }
+                int candidateCount = 0;
+                if (nodeColumn > 0 && cells.get(left) == Board.WALL) {
+                    candidates[candidateCount++] = left;
+                }
+                if (nodeColumn < nodeColumnCount - 1 && cells.get(right) == Board.WALL) {
+                    candidates[candidateCount++] = right;
+                }
+                if (nodeRow > firstNodeRow && cells.get(up) == Board.WALL) {
+                    candidates[candidateCount++] = up;
+                }
+                if (nodeRow < endNodeRow - 1 && cells.get(down) == Board.WALL) {
+                    candidates[candidateCount++] = down;
+                }
+                if (candidateCount > 0) {
+                    cells.set(candidates[random.nextInt(candidateCount)], Board.EMPTY);
+                }
+            }
+        }
+        int dotCount = 0;
+        for (int index = 2 * firstNodeRow * columnCount; index < 2 * endNodeRow * columnCount; index++) {
+            if (cells.get(index) == Board.EMPTY) {
+                cells.set(index, random.nextInt(BIG_DOT_ODDS) == 0 ? Board.BIGDOT : Board.SMALLDOT);
+                dotCount++;
+            }
+        }
+        return dotCount;
+    }
+
+    /**
+     * Opens corridors through the left and right edges on a few node rows spread down the maze, leaving them empty
+     */
+    private void openTunnels(Board cells, Random random) {
+        int tunnelCount = Math.max(1, nodeRowCount / NODE_ROWS_PER_TUNNEL);
+        for (int tunnel = 0; tunnel < tunnelCount; tunnel++) {
+            int firstNodeRow = tunnel * nodeRowCount / tunnelCount;
+            int endNodeRow = (tunnel + 1) * nodeRowCount / tunnelCount;
+            int row = 2 * (firstNodeRow + random.nextInt(endNodeRow - firstNodeRow)) + 1;
+            cells.set(row * columnCount, Board.EMPTY);
+            //every column right of the last node column, of which there are two when columnCount is even
+            for (int column = 2 * nodeColumnCount; column < columnCount; column++) {
+                cells.set(row * columnCount + column, Board.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Picks a different node for every ghost, at least a quarter of the maze away from PacMan where there is room
+     * @param ghostHomes receives the flat Board indices of the ghosts' homes
+     * @return the number of dots the homes replaced
+     */
+    private int placeGhosts(Board cells, Random random, int[] ghostHomes, int pacmanNodeRow, int pacmanNodeColumn) {
+        int replacedDots = 0;
+        int minDistance = Math.min(nodeRowCount, nodeColumnCount) / 4;
+        int attempts = 0;
+        for (int ghost = 0; ghost < ghostCount; ) {
+            int nodeRow = random.nextInt(nodeRowCount);
+            int nodeColumn = random.nextInt(nodeColumnCount);
+            int home = node(nodeRow, nodeColumn);
+            attempts++;
+            //on small or crowded mazes, give up on the distance after a while
+            boolean farEnough = Math.abs(nodeRow - pacmanNodeRow) + Math.abs(nodeColumn - pacmanNodeColumn) >= minDistance
+                    || attempts > 64 * ghostCount;
+            if (farEnough && cells.get(home) != Board.PACMANHOME && cells.get(home) != Board.GHOSTHOME) {
+                replacedDots += isDot(cells.get(home)) ? 1 : 0;
+                cells.set(home, Board.GHOSTHOME);
+                ghostHomes[ghost++] = home;
+            }
+        }
+        return replacedDots;
+    }
+}
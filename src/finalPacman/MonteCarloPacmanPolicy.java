@@ -0,0 +1,564 @@
+/**
+ * An autopilot that steers PacMan by Monte Carlo tree search. On every step it searches for a fixed time budget: each
+ * rollout restores a copy of the game to the current state (see GameSnapshot), walks down a tree of PacMan's moves
+ * choosing by UCT, adds one level to the tree, and then plays on with random moves that never turn back for up to
+ * ROLLOUT_DEPTH steps. A rollout scores below 0.5 if PacMan dies, only by how late he dies and not by what he ate
+ * first, and from 0.5 to 1 if he lives, by the points he scores and by how much closer the tree's moves took him to the
+ * nearest dot, so he heads for dots even when none is within a rollout's reach. The direction whose subtree was visited
+ * most is played.
+ *
+ * The search is root-parallel: every thread grows its own tree on its own PacManModel, and their visit counts are added
+ * up at the end, so the threads share nothing while searching. The threads are started with the policy and woken for
+ * every step, trees are kept in preallocated arrays and the models are restored rather than copied, so a step does not
+ * allocate.
+ *
+ * chooseDirection() searches while the caller waits. A game loop that cannot wait, like the JavaFX one, instead calls
+ * startSearch() after each step and finishSearch() for the next one, and the search runs in between.
+ *
+ * Usage: java finalPacman.MonteCarloPacmanPolicy [games] [budget in ms] [threads]
+ * Plays games on the shipped levels and reports the results and the rollouts per second.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public final class MonteCarloPacmanPolicy implements PacmanPolicy, AutoCloseable {
+    public static final long DEFAULT_BUDGET_MILLIS = 10;
+    //short, as the ghosts close in faster than random moves get PacMan anywhere
+    public static final int ROLLOUT_DEPTH = 12;
+    private static final Direction[] MOVES = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    //low, as the rewards of a step's moves are close together and the tree has to go deep to see a dot eaten
+    private static final double EXPLORATION = 0.3;
+    //what eating a big dot costs a rollout: a ghost chasing right behind PacMan can only be shaken off by eating it,
+    //so a big dot is only worth eating when he eats a ghost with it, and is otherwise kept for later
+    private static final int WASTED_BIG_DOT_POINTS = 50;
+    //the most tree nodes one thread keeps; a search that fills them stops early
+    private static final int MAX_NODES = 1 << 16;
+    //the opposite of each Direction, by ordinal
+    private static final Direction[] REVERSE = new Direction[Direction.values().length];
+
+    static {
+        REVERSE[Direction.UP.ordinal()] = Direction.DOWN;
+        REVERSE[Direction.DOWN.ordinal()] = Direction.UP;
+        REVERSE[Direction.LEFT.ordinal()] = Direction.RIGHT;
+        REVERSE[Direction.RIGHT.ordinal()] = Direction.LEFT;
+        REVERSE[Direction.NONE.ordinal()] = Direction.NONE;
+    }
+
+    private final Search[] searches;
+    //thread i runs search i when generation changes; until the first startSearch there is no thread 0, and the caller
+    //runs search 0 itself
+    private final Thread[] workers;
+    private final AtomicInteger pendingWorkers = new AtomicInteger();
+    private volatile int generation;
+    private volatile boolean closed;
+    private volatile Thread caller;
+    //what the last search to fail threw, until the caller rethrows it
+    private volatile Throwable failure;
+    private final GameSnapshot root = new GameSnapshot();
+    private final long budgetNanos;
+    //whether a search started by startSearch has not been finished yet, and the state it started from
+    private boolean searching;
+    private int rootTickCount;
+    private long rootZobristHash;
+    private long startTime;
+    private long rolloutCount;
+    private long searchNanos;
+
+    /**
+     * @param levels the levels of the games the policy will play
+     * @param threadCount how many threads search on every step
+     * @param budgetMillis how long to search on every step
+     */
+    public MonteCarloPacmanPolicy(LevelCatalog levels, int threadCount, long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.searches = new Search[threadCount];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < threadCount; i++) {
+            this.searches[i] = new Search(new PacManModel(levels), seeds.split());
+        }
+        this.workers = new Thread[threadCount];
+        for (int i = 1; i < threadCount; i++) {
+            this.startWorker(i);
+        }
+    }
+
+    /**
+     * Searches on every core for the default budget
+     */
+    public MonteCarloPacmanPolicy(LevelCatalog levels) {
+        this(levels, Runtime.getRuntime().availableProcessors(), DEFAULT_BUDGET_MILLIS);
+    }
+
+    public static void main(String[] args) {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long budgetMillis = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_BUDGET_MILLIS;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        LevelCatalog levels = LevelCatalog.getDefault();
+        PacManModel model = new PacManModel(levels);
+        try (MonteCarloPacmanPolicy policy = new MonteCarloPacmanPolicy(levels, threadCount, budgetMillis)) {
+            for (int game = 0; game < gameCount; game++) {
+                model.setRandomSeed(game);
+                model.startNewGame();
+                int tick = 0;
+                while (!model.isGameOver() && tick < BatchSimulator.DEFAULT_TICK_CAP) {
+                    model.step(policy.chooseDirection(model, tick));
+                    tick++;
+                }
+                System.out.printf("game %d: score %d, level %d, %d ticks, %s%n", game, model.getScore(),
+                        model.getLevel(), tick, model.isYouWon() ? "won" : model.isGameOver() ? "died" : "stopped");
+            }
+            System.out.printf("%d rollouts on %d threads (%.0f rollouts/s)%n", policy.getRolloutCount(), threadCount,
+                    policy.getRolloutsPerSecond());
+        }
+    }
+
+    @Override
+    public Direction chooseDirection(PacManModel model, int tick) {
+        if (this.searching) {
+            //the caller has gone back to steering step by step; what that search found is of no use now
+            this.awaitSearches();
+        }
+        if (model.isGameOver()) {
+            return Direction.NONE;
+        }
+        this.prepareSearches(model);
+        this.runSearches();
+        if (this.workers[0] == null) {
+            this.searches[0].run();
+        }
+        this.awaitSearches();
+        return MOVES[this.bestMove()];
+    }
+
+    /**
+     * Starts searching for the move after the one the game has just made, on the policy's own threads, so the caller
+     * can get on with other work (the JavaFX thread with drawing, say) while it runs. finishSearch() gets the move.
+     * @param model the game, which the search takes a snapshot of, so the caller may step it before finishing
+     */
+    public void startSearch(PacManModel model) {
+        if (this.searching) {
+            this.awaitSearches();
+        }
+        if (model.isGameOver()) {
+            return;
+        }
+        if (this.workers[0] == null) {
+            this.startWorker(0);
+        }
+        this.prepareSearches(model);
+        this.rootTickCount = model.getTickCount();
+        this.rootZobristHash = model.getZobristHash();
+        this.searching = true;
+        this.runSearches();
+    }
+
+    /**
+     * Waits for the search startSearch() started, which takes up to the budget from when it was started
+     * @param model the game
+     * @return the direction the search chose, or PacMan's current direction if no search was started or the game has
+     * moved on from the state it was started from (it has been stepped, rewound or started again)
+     */
+    public Direction finishSearch(PacManModel model) {
+        if (!this.searching) {
+            return model.getCurrentDirection();
+        }
+        this.awaitSearches();
+        if (model.getTickCount() != this.rootTickCount || model.getZobristHash() != this.rootZobristHash) {
+            return model.getCurrentDirection();
+        }
+        return MOVES[this.bestMove()];
+    }
+
+    //takes a snapshot of the game and empties every tree, on the calling thread
+    private void prepareSearches(PacManModel model) {
+        this.startTime = System.nanoTime();
+        model.saveSnapshot(this.root);
+        for (Search search : this.searches) {
+            search.prepare(model, this.root, this.startTime + this.budgetNanos);
+        }
+    }
+
+    //wakes the threads to run their searches
+    private void runSearches() {
+        int firstWorker = this.workers[0] == null ? 1 : 0;
+        this.caller = Thread.currentThread();
+        this.pendingWorkers.set(this.workers.length - firstWorker);
+        //the volatile write publishes the prepared searches to the workers
+        this.generation++;
+        for (int i = firstWorker; i < this.workers.length; i++) {
+            LockSupport.unpark(this.workers[i]);
+        }
+    }
+
+    //waits for the threads to finish their searches, and adds up how many rollouts they played and for how long
+    private void awaitSearches() {
+        this.searching = false;
+        while (this.pendingWorkers.get() != 0) {
+            LockSupport.park(this);
+        }
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw new IllegalStateException("a search thread failed", failure);
+        }
+        long endTime = this.startTime;
+        for (Search search : this.searches) {
+            this.rolloutCount += search.getRolloutCount();
+            endTime = Math.max(endTime, search.getEndTime());
+        }
+        //the searches' own end, as the caller may only come back for the result well after it
+        this.searchNanos += endTime - this.startTime;
+    }
+
+    //the move whose subtrees were visited most, over all the trees
+    private int bestMove() {
+        int bestMove = 0;
+        long bestVisits = -1;
+        for (int move = 0; move < MOVES.length; move++) {
+            long visits = 0;
+            for (Search search : this.searches) {
+                visits += search.getRootVisits(move);
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    private void startWorker(int index) {
+        //a thread started after some steps have been searched waits for the next one, not one it has missed
+        int seenGeneration = this.generation;
+        this.workers[index] = new Thread(() -> work(index, seenGeneration), "monte-carlo-search-" + index);
+        this.workers[index].setDaemon(true);
+        this.workers[index].start();
+    }
+
+    private void work(int index, int startGeneration) {
+        Search search = this.searches[index];
+        int seenGeneration = startGeneration;
+        while (!this.closed) {
+            while (this.generation == seenGeneration && !this.closed) {
+                LockSupport.park(this);
+            }
+            if (this.closed) {
+                return;
+            }
+            seenGeneration = this.generation;
+            try {
+                search.run();
+            } catch (Throwable e) {
+                this.failure = e;
+            } finally {
+                if (this.pendingWorkers.decrementAndGet() == 0) {
+                    LockSupport.unpark(this.caller);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of rollouts played since the policy was created
+     */
+    public long getRolloutCount() {
+        return this.rolloutCount;
+    }
+
+    /**
+     * @return the rollouts played per second of searching, over all threads
+     */
+    public double getRolloutsPerSecond() {
+        return this.searchNanos == 0 ? 0 : this.rolloutCount * 1e9 / this.searchNanos;
+    }
+
+    /**
+     * Stops the search threads
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (Thread worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * One thread's tree and the model it plays its rollouts on. Node 0 is the root; the children of a node are the
+     * four nodes from firstChild, one per move of MOVES, and a node without children has firstChild -1.
+     */
+    private static final class Search {
+        private final PacManModel model;
+        private final SplittableRandom random;
+        private final int[] firstChild = new int[MAX_NODES];
+        private final int[] visits = new int[MAX_NODES];
+        private final double[] rewards = new double[MAX_NODES];
+        //the nodes the current rollout went through
+        private final int[] path = new int[ROLLOUT_DEPTH + 1];
+        //the breadth-first search for the nearest dot; a cell has been reached when its mark is dotSearch
+        private int[] dotQueue = new int[0];
+        private int[] dotSearchMarks = new int[0];
+        private int dotSearch;
+        private int nodeCount;
+        private int rolloutCount;
+        private GameSnapshot root;
+        private int rootLevel;
+        private int rootDotDistance;
+        private long deadline;
+        private long endTime;
+
+        Search(PacManModel model, SplittableRandom random) {
+            this.model = model;
+            this.random = random;
+        }
+
+        /**
+         * Empties the tree and gives the model the ghost strategies of the game being played
+         */
+        void prepare(PacManModel game, GameSnapshot root, long deadline) {
+            this.root = root;
+            this.deadline = deadline;
+            this.model.restore(root);
+            for (int ghost = 0; ghost < game.getGhostCount(); ghost++) {
+                this.model.setGhostStrategy(ghost, game.getGhostStrategy(ghost));
+            }
+            this.rootLevel = this.model.getLevel();
+            this.rootDotDistance = nearestDotDistance();
+            this.nodeCount = 1;
+            this.firstChild[0] = -1;
+            this.visits[0] = 0;
+            this.rewards[0] = 0;
+            this.rolloutCount = 0;
+        }
+
+        void run() {
+            //always play at least one rollout, so there is a move to choose
+            do {
+                rollout();
+                this.rolloutCount++;
+            } while (System.nanoTime() < this.deadline && this.nodeCount + MOVES.length <= MAX_NODES);
+            this.endTime = System.nanoTime();
+        }
+
+        private void rollout() {
+            this.model.restore(this.root);
+            long startDotCount = this.model.getDotsEatenCount() - this.model.getBigDotsEatenCount();
+            long startBigDotCount = this.model.getBigDotsEatenCount();
+            long startGhostCount = this.model.getGhostsEatenCount();
+            int node = 0;
+            int depth = 0;
+            this.path[0] = 0;
+            //down the tree
+            while (this.firstChild[node] >= 0 && !this.model.isGameOver()) {
+                int move = select(node);
+                node = this.firstChild[node] + move;
+                this.model.step(MOVES[move]);
+                this.path[++depth] = node;
+            }
+            //one more level of the tree
+            if (!this.model.isGameOver() && depth < ROLLOUT_DEPTH && this.nodeCount + MOVES.length <= MAX_NODES) {
+                expand(node);
+                int move = this.random.nextInt(MOVES.length);
+                node = this.firstChild[node] + move;
+                this.model.step(MOVES[move]);
+                this.path[++depth] = node;
+            }
+            int treeDepth = depth;
+            //measured before the playout, whose random moves would drown out those chosen in the tree
+            boolean ateDot = this.model.getDotsEatenCount() - this.model.getBigDotsEatenCount() > startDotCount;
+            double progress = progress(treeDepth, ateDot);
+            //random playout, going on the way the tree's last move went
+            Direction direction = Direction.NONE;
+            if (depth > 0) {
+                direction = MOVES[this.path[depth] - this.firstChild[this.path[depth - 1]]];
+            }
+            while (depth < ROLLOUT_DEPTH && !this.model.isGameOver()) {
+                direction = playoutDirection(direction);
+                this.model.step(direction);
+                depth++;
+            }
+            int points = (int) (10 * (this.model.getDotsEatenCount() - this.model.getBigDotsEatenCount() - startDotCount)
+                    - WASTED_BIG_DOT_POINTS * (this.model.getBigDotsEatenCount() - startBigDotCount)
+                    + 100 * (this.model.getGhostsEatenCount() - startGhostCount));
+            double reward = reward(points, depth, progress);
+            for (int i = 0; i <= treeDepth; i++) {
+                this.visits[this.path[i]]++;
+                this.rewards[this.path[i]] += reward;
+            }
+        }
+
+        /**
+         * A random walk that never turns back, as PacMan turning back and forth in a corridor is soon caught: keeps
+         * going until a junction or a wall, and there takes a random way other than back
+         * @param direction the direction of the last step
+         */
+        private Direction playoutDirection(Direction direction) {
+            MoveTable moveTable = this.model.getMoveTable();
+            int location = this.model.getPacmanIndex();
+            int exitCount = moveTable.exitCount(location);
+            if (exitCount == 0) {
+                return direction;
+            }
+            if (exitCount <= 2 && direction != Direction.NONE && moveTable.neighbor(location, direction) >= 0) {
+                return direction;
+            }
+            Direction back = REVERSE[direction.ordinal()];
+            int exit = this.random.nextInt(exitCount);
+            if (moveTable.exit(location, exit) == back && exitCount > 1) {
+                //any other exit, chosen evenly
+                exit = (exit + 1 + this.random.nextInt(exitCount - 1)) % exitCount;
+            }
+            return moveTable.exit(location, exit);
+        }
+
+        /**
+         * @param points the points scored for small dots and ghosts, less WASTED_BIG_DOT_POINTS for every big dot
+         */
+        private double reward(int points, int steps, double progress) {
+            if (this.model.isGameOver() && !this.model.isYouWon()) {
+                //dying later is better, as there is more time to get away, but every death scores below living,
+                //however many points came before it
+                return 0.5 * steps / (ROLLOUT_DEPTH + 1);
+            }
+            //a small dot every step is about the most a rollout can score
+            double pointsReward = Math.max(0.0, Math.min(1.0, 0.5 + 0.5 * points / (10.0 * ROLLOUT_DEPTH)));
+            return 0.5 + 0.25 * pointsReward + 0.25 * progress;
+        }
+
+        /**
+         * @param steps the number of steps taken since the root
+         * @param ateDot whether PacMan has eaten a small dot since the root, after which the nearest dot is another one
+         * @return from 0 to 1, how much closer to the nearest dot PacMan has got since the root: 1 if every step took
+         * him a cell closer (or he ate a dot or cleared the level), 0.5 for no closer, 0 if every step took him further
+         * away
+         */
+        private double progress(int steps, boolean ateDot) {
+            if (ateDot || this.model.getLevel() != this.rootLevel || this.model.isYouWon()) {
+                return 1.0;
+            }
+            if (steps == 0 || this.model.isGameOver()) {
+                return 0.5;
+            }
+            int distance = nearestDotDistance();
+            if (distance == FlowField.UNREACHABLE || this.rootDotDistance == FlowField.UNREACHABLE) {
+                return 0.5;
+            }
+            double progress = 0.5 + 0.5 * (this.rootDotDistance - distance) / steps;
+            return Math.max(0.0, Math.min(1.0, progress));
+        }
+
+        /**
+         * @return the number of moves from PacMan to the nearest small dot, or while there are none, to the nearest
+         * big dot; big dots are kept for when a ghost guards the last small dots
+         */
+        private int nearestDotDistance() {
+            int distance = nearestDotDistance(false);
+            return distance == FlowField.UNREACHABLE ? nearestDotDistance(true) : distance;
+        }
+
+        /**
+         * @param bigDots whether big dots count as well as small ones
+         * @return the number of moves from PacMan to the nearest dot, or FlowField.UNREACHABLE if none can be reached
+         */
+        private int nearestDotDistance(boolean bigDots) {
+            MoveTable moveTable = this.model.getMoveTable();
+            Board board = this.model.getBoard();
+            int cellCount = moveTable.getRowCount() * moveTable.getColumnCount();
+            if (this.dotSearchMarks.length < cellCount) {
+                this.dotQueue = new int[cellCount];
+                this.dotSearchMarks = new int[cellCount];
+                this.dotSearch = 0;
+            }
+            this.dotSearch++;
+            if (this.dotSearch == 0) {
+                //the marks have wrapped around, so old marks could be taken for this search's
+                Arrays.fill(this.dotSearchMarks, 0);
+                this.dotSearch = 1;
+            }
+            //the queue holds the cells at the distance being searched from head to levelEnd, and those one further on
+            int head = 0;
+            int tail = 0;
+            int start = this.model.getPacmanIndex();
+            this.dotQueue[tail++] = start;
+            this.dotSearchMarks[start] = this.dotSearch;
+            int distance = 0;
+            while (head < tail) {
+                int levelEnd = tail;
+                while (head < levelEnd) {
+                    int location = this.dotQueue[head++];
+                    byte cell = board.get(location);
+                    if (cell == Board.SMALLDOT || (bigDots && cell == Board.BIGDOT)) {
+                        return distance;
+                    }
+                    for (Direction direction : MOVES) {
+                        int next = moveTable.neighbor(location, direction);
+                        if (next >= 0 && this.dotSearchMarks[next] != this.dotSearch) {
+                            this.dotSearchMarks[next] = this.dotSearch;
+                            this.dotQueue[tail++] = next;
+                        }
+                    }
+                }
+                distance++;
+            }
+            return FlowField.UNREACHABLE;
+        }
+
+        //the child to visit by UCT, trying every child once first
+        private int select(int node) {
+            int first = this.firstChild[node];
+            double logVisits = Math.log(this.visits[node]);
+            int bestMove = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < MOVES.length; move++) {
+                int child = first + move;
+                double value;
+                if (this.visits[child] == 0) {
+                    //untried children come first, in random order
+                    value = Double.MAX_VALUE * this.random.nextDouble();
+                }
+                else {
+                    value = this.rewards[child] / this.visits[child]
+                            + EXPLORATION * Math.sqrt(logVisits / this.visits[child]);
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestMove = move;
+                }
+            }
+            return bestMove;
+        }
+
+        private void expand(int node) {
+            this.firstChild[node] = this.nodeCount;
+            for (int child = this.nodeCount; child < this.nodeCount + MOVES.length; child++) {
+                this.firstChild[child] = -1;
+                this.visits[child] = 0;
+                this.rewards[child] = 0;
+            }
+            this.nodeCount += MOVES.length;
+        }
+
+        /**
+         * @param move an index into MOVES
+         * @return the number of rollouts that started with that move
+         */
+        int getRootVisits(int move) {
+            return this.firstChild[0] < 0 ? 0 : this.visits[this.firstChild[0] + move];
+        }
+
+        int getRolloutCount() {
+            return this.rolloutCount;
+        }
+
+        long getEndTime() {
+            return this.endTime;
+        }
+    }
+}
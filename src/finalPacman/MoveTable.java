@@ -0,0 +1,169 @@
+/**
+ * Precomputed legal moves for every cell of a Board, built once when a level is loaded. Each cell gets one byte: the
+ * low four bits say which directions lead to a non-wall cell and the high four bits say which of those moves wrap
+ * around to the other side of the board (the tunnels on the left and right edges). Walls never change during a level,
+ * so moving an actor becomes a couple of table lookups instead of building and checking a candidate location. The
+ * table of a board large enough to be mapped (see Board.create()) is kept in a ChunkedBoardStore, off the heap.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public final class MoveTable {
+    private static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    private static final int WRAP_SHIFT = 4;
+    private static final int DIRECTION_MASK = 0x0F;
+    //for each 4-bit mask of legal directions, the directions it contains, so a random exit can be picked in one draw
+    private static final Direction[][] EXITS = new Direction[16][];
+
+    static {
+        for (int mask = 0; mask < EXITS.length; mask++) {
+            EXITS[mask] = new Direction[Integer.bitCount(mask)];
+            int exit = 0;
+            for (Direction direction : DIRECTIONS) {
+                if ((mask & bit(direction)) != 0) {
+                    EXITS[mask][exit++] = direction;
+                }
+            }
+        }
+    }
+
+    private final int rowCount;
+    private final int columnCount;
+    //exactly one of these is null
+    private final byte[] moves;
+    private final ChunkedBoardStore mappedMoves;
+    //the index offset of moving in each direction, and of moving in each direction through a tunnel
+    private final int[] offsets;
+    private final int[] wrapOffsets;
+
+    /**
+     * Builds the legal-move table for the walls on the given board
+     * @param board the board of the level being loaded
+     */
+    public MoveTable(Board board) {
+        this.rowCount = board.getRowCount();
+        this.columnCount = board.getColumnCount();
+        if (Board.isMapped(rowCount, columnCount)) {
+            this.moves = null;
+            this.mappedMoves = new ChunkedBoardStore(rowCount, columnCount);
+        }
+        else {
+            this.moves = new byte[rowCount * columnCount];
+            this.mappedMoves = null;
+        }
+        this.offsets = new int[] {-columnCount, columnCount, -1, 1};
+        this.wrapOffsets = new int[] {0, 0, columnCount - 1, -(columnCount - 1)};
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                int mask = 0;
+                if (row > 0 && !board.isWall(row - 1, column)) {
+                    mask |= bit(Direction.UP);
+                }
+                if (row < rowCount - 1 && !board.isWall(row + 1, column)) {
+                    mask |= bit(Direction.DOWN);
+                }
+                //if a move would go offscreen on the left or right, it wraps around to the other side of the board
+                if (column > 0) {
+                    if (!board.isWall(row, column - 1)) {
+                        mask |= bit(Direction.LEFT);
+                    }
+                }
+                else if (!board.isWall(row, columnCount - 1)) {
+                    mask |= bit(Direction.LEFT) | bit(Direction.LEFT) << WRAP_SHIFT;
+                }
+                if (column < columnCount - 1) {
+                    if (!board.isWall(row, column + 1)) {
+                        mask |= bit(Direction.RIGHT);
+                    }
+                }
+                else if (!board.isWall(row, 0)) {
+                    mask |= bit(Direction.RIGHT) | bit(Direction.RIGHT) << WRAP_SHIFT;
+                }
+                if (moves != null) {
+                    moves[row * columnCount + column] = (byte) mask;
+                }
+                else {
+                    mappedMoves.set(row, column, (byte) mask);
+                }
+            }
+        }
+    }
+
+    private static int bit(Direction direction) {
+        return 1 << direction.ordinal();
+    }
+
+    //the move byte of a location
+    private int moves(int location) {
+        if (moves != null) {
+            return moves[location];
+        }
+        return mappedMoves.get(location);
+    }
+
+    /**
+     * @param location a flat Board index
+     * @param direction the direction to move in
+     * @return whether moving from the location in the direction would not hit a wall (standing still is always legal)
+     */
+    public boolean isLegal(int location, Direction direction) {
+        return direction == Direction.NONE || (moves(location) & bit(direction)) != 0;
+    }
+
+    /**
+     * Finds the cell reached by moving from a location in the given direction, wrapping around the gameboard through
+     * tunnels
+     * @param location a flat Board index
+     * @param direction the direction to move in
+     * @return the flat Board index of the cell moved into, or -1 if the move would hit a wall
+     */
+    public int neighbor(int location, Direction direction) {
+        if (direction == Direction.NONE) {
+            return location;
+        }
+        int mask = moves(location);
+        int bit = bit(direction);
+        if ((mask & bit) == 0) {
+            return -1;
+        }
+        if ((mask & bit << WRAP_SHIFT) != 0) {
+            return location + wrapOffsets[direction.ordinal()];
+        }
+        return location + offsets[direction.ordinal()];
+    }
+
+    /**
+     * @param location a flat Board index
+     * @return the number of directions that can be moved in from the location without hitting a wall
+     */
+    public int exitCount(int location) {
+        return EXITS[moves(location) & DIRECTION_MASK].length;
+    }
+
+    /**
+     * @param location a flat Board index
+     * @param exit a number from 0 to exitCount(location) - 1
+     * @return the exit-th legal direction out of the location
+     */
+    public Direction exit(int location, int exit) {
+        return EXITS[moves(location) & DIRECTION_MASK][exit];
+    }
+
+    /**
+     * @param location a flat Board index
+     * @return the 4-bit mask of legal directions out of the location, with bit (1 << Direction.ordinal()) set for each
+     */
+    public int legalMoves(int location) {
+        return moves(location) & DIRECTION_MASK;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+}
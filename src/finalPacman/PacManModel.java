@@ -1,139 +1,223 @@
 /**
  * @author Jessie Baskauf and Ellie Mamantov
- * The Model stores information about the game state, including the underlying grid of CellValues (as loaded from the
+ * The Model stores information about the game state, including the underlying Board of cells (as loaded from the
  * text file), various boolean indicators about game state, level, score, and the movement of PacMan and ghosts.
+ * The Model has no dependency on JavaFX or on the Controller, so it can be stepped headless by a plain loop. All game
+ * state belongs to the instance, so independent games can be stepped concurrently on different threads. The whole
+ * state can be saved to a GameSnapshot and restored from one, which is how RewindBuffer rewinds a game, and the
+ * model keeps a Zobrist hash of its state up to date as it changes, so a search can tell states apart in O(1).
  */
 
 package finalPacman;
 
-import javafx.geometry.Point2D;
-
-import javafx.fxml.FXML;
-import java.io.*;
-
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class PacManModel {
     public enum CellValue {
-        EMPTY, SMALLDOT, BIGDOT, WALL, GHOST1HOME, GHOST2HOME, PACMANHOME
+        EMPTY, SMALLDOT, BIGDOT, WALL, GHOSTHOME, PACMANHOME
     };
     public enum Direction {
         UP, DOWN, LEFT, RIGHT, NONE
     };
-    @FXML private int rowCount;
-    @FXML private int columnCount;
-    private CellValue[][] grid;
+    public static final int GHOST_EATING_MODE_DURATION = 25;
+    //ghost states
+    public static final byte GHOST_CHASING = 0;
+    public static final byte GHOST_FRIGHTENED = 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int CHANGED_CELLS_PER_ACTOR = 32;
+    //eatenCells is sized for every dot of a level up to this many, and beyond that grows as dots are eaten, as a level
+    //large enough to be mapped can have more dots than the heap has room for
+    private static final int MAX_PREALLOCATED_EATEN_CELLS = 1 << 20;
+
+    private final LevelCatalog levels;
+    private Level currentLevel;
+    private int rowCount;
+    private int columnCount;
+    private Board board;
+    private MoveTable moveTable;
+    private DistanceTable distanceTable;
     private int score;
     private int level;
     private int dotCount;
-    private static boolean gameOver;
-    private static boolean youWon;
-    private static boolean ghostEatingMode;
-    private Point2D pacmanLocation;
-    private Point2D pacmanVelocity;
-    private Point2D ghost1Location;
-    private Point2D ghost1Velocity;
-    private Point2D ghost2Location;
-    private Point2D ghost2Velocity;
-    private static Direction lastDirection;
-    private static Direction currentDirection;
+    private boolean gameOver;
+    private boolean youWon;
+    private boolean ghostEatingMode;
+    private int ghostEatingModeCounter;
+    //actor locations are flat Board indices (row * columnCount + column) and velocities are Directions, so moving
+    //an actor never allocates
+    private int pacmanLocation;
+    private Direction pacmanVelocity;
+    //where the actors were before the most recent step, so the view can draw them moving between cells
+    private int previousPacmanLocation;
+    //the level decides how many ghosts there are; they are stored as parallel arrays indexed by ghost number (velocities
+    //as Direction ordinals), which only grow when a level has more ghosts than any before it, and only the first
+    //ghostCount entries are in use
+    private int ghostCount;
+    private int[] ghostLocations = new int[0];
+    private int[] previousGhostLocations = new int[0];
+    private int[] ghostHomes = new int[0];
+    private byte[] ghostVelocities = new byte[0];
+    private byte[] ghostStates = new byte[0];
+    private GhostStrategy[] ghostStrategies = new GhostStrategy[0];
+    //the strategy of ghosts that have not been given one of their own
+    private GhostStrategy defaultGhostStrategy = new FlowFieldGhostStrategy();
+    //every random decision of the game comes from this generator, so a game is repeated exactly by its seed and
+    //inputs; it is SplittableRandom's algorithm kept in a field of our own, so a snapshot can copy its state
+    private long randomState = ThreadLocalRandom.current().nextLong();
+    //the cells PacMan has eaten a dot from since the level started, in order, which is everything that makes the
+    //board differ from the level; sized for every dot of any but a huge level, so it never grows during a step
+    private int[] eatenCells = new int[0];
+    private int eatenCellCount;
+    //the XOR of the ZobristKeys of everything in the state; every change to the state XORs the key of what it
+    //removes and the key of what it adds
+    private long zobristHash;
+    //events counted over every game of this model, for GameMetrics and MonteCarloPacmanPolicy; they are not game
+    //state, so snapshots and new games leave them alone
+    private long dotsEatenCount;
+    private long bigDotsEatenCount;
+    private long ghostsEatenCount;
+    private long deathCount;
+    private long levelLoadCount;
+    private long lastLevelLoadNanos;
+    //the number of steps since the game started
+    private int tickCount;
+    //maze distances to PacMan's cell, shared by every ghost and recomputed only when he has changed cell; only used on
+    //levels without a DistanceTable, and kept from one such level to the next
+    private FlowField pacmanFlowField;
+    //the flat Board indices of the cells whose picture may have changed since the view last drew the board: the old
+    //and new cells of every actor (which includes any dot PacMan ate); a level load or a change too big for the
+    //list means every cell has changed
+    private int[] changedCells = new int[CHANGED_CELLS_PER_ACTOR];
+    private int changedCellCount;
+    private boolean allCellsChanged;
+    private Direction lastDirection;
+    private Direction currentDirection;
 
     /**
-     * Start a new game upon initializion
+     * Start a new game upon initializion, using the levels shipped with the game
      */
     public PacManModel() {
+        this(LevelCatalog.getDefault());
+    }
+
+    /**
+     * Start a new game upon initialization
+     * @param levels the levels to play, in order; the catalog may be shared with other games
+     */
+    public PacManModel(LevelCatalog levels) {
+        this.levels = levels;
         this.startNewGame();
     }
 
     /**
-     * Configure the grid CellValues based on the txt file and place PacMan and ghosts at their starting locations.
-     * "W" indicates a wall, "E" indicates an empty square, "B" indicates a big dot, "S" indicates
-     * a small dot, "1" or "2" indicates the ghosts home, and "P" indicates Pacman's starting position.
+     * Configure the Board cells based on the level file and place PacMan and ghosts at their starting locations.
+     * In a txt file "W" indicates a wall, "E" indicates an empty square, "B" indicates a big dot, "S" indicates
+     * a small dot, "G" (or "1" or "2") indicates the home of one ghost, and "P" indicates Pacman's starting position.
+     * A file ending in .lvl is a level compiled by LevelCompiler.
      *
-     * @param fileName txt file containing the board configuration
+     * The file is read and its tables are built on the calling thread; levels from the LevelCatalog are started with
+     * startLevel() instead, which can use a level prepared in the background.
+     *
+     * @param fileName txt or lvl file containing the board configuration
+     * @throws LevelFormatException if the file is not a well-formed level
      */
     public void initializeLevel(String fileName) {
-        File file = new File(fileName);
-        Scanner scanner = null;
-        try {
-            scanner = new Scanner(file);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            Scanner lineScanner = new Scanner(line);
-            while (lineScanner.hasNext()) {
-                lineScanner.next();
-                columnCount++;
+        this.initializeLevel(PreparedLevel.prepare(Level.load(fileName)));
+    }
+
+    /**
+     * Start a level of the LevelCatalog and have the catalog prepare the level after it in the background
+     * @param index the 0-based index of the level in the catalog
+     */
+    private void startLevel(int index) {
+        long startTime = System.nanoTime();
+        PreparedLevel preparedLevel = levels.get(index);
+        levels.prefetch(index + 1);
+        this.initializeLevel(preparedLevel);
+        lastLevelLoadNanos = System.nanoTime() - startTime;
+        levelLoadCount++;
+    }
+
+    private void initializeLevel(PreparedLevel preparedLevel) {
+        GameEvents.InitializeLevel event = GameEvents.beginInitializeLevel();
+        Level level = preparedLevel.getLevel();
+        currentLevel = level;
+        rowCount = level.getRowCount();
+        columnCount = level.getColumnCount();
+        dotCount = level.getDotCount();
+        board = level.resetBoard(board);
+        if (eatenCells.length < Math.min(dotCount, MAX_PREALLOCATED_EATEN_CELLS)) {
+            eatenCells = new int[Math.min(dotCount, MAX_PREALLOCATED_EATEN_CELLS)];
+        }
+        eatenCellCount = 0;
+        moveTable = preparedLevel.getMoveTable();
+        markAllCellsChanged();
+        distanceTable = preparedLevel.getDistanceTable();
+        if (distanceTable == null) {
+            //on a huge board the field's arrays are hundreds of megabytes, so they are kept from level to level
+            if (pacmanFlowField == null) {
+                pacmanFlowField = new FlowField(moveTable);
             }
-            rowCount++;
-        }
-        columnCount = columnCount/rowCount;
-        Scanner scanner2 = null;
-        try {
-            scanner2 = new Scanner(file);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        grid = new CellValue[rowCount][columnCount];
-        int row = 0;
-        int pacmanRow = 0;
-        int pacmanColumn = 0;
-        int ghost1Row = 0;
-        int ghost1Column = 0;
-        int ghost2Row = 0;
-        int ghost2Column = 0;
-        while(scanner2.hasNextLine()){
-            int column = 0;
-            String line= scanner2.nextLine();
-            Scanner lineScanner = new Scanner(line);
-            while (lineScanner.hasNext()){
-                String value = lineScanner.next();
-                CellValue thisValue;
-                if (value.equals("W")){
-                    thisValue = CellValue.WALL;
-                }
-                else if (value.equals("S")){
-                    thisValue = CellValue.SMALLDOT;
-                    dotCount++;
-                }
-                else if (value.equals("B")){
-                    thisValue = CellValue.BIGDOT;
-                    dotCount++;
-                }
-                else if (value.equals("1")){
-                    thisValue = CellValue.GHOST1HOME;
-                    ghost1Row = row;
-                    ghost1Column = column;
-                }
-                else if (value.equals("2")){
-                    thisValue = CellValue.GHOST2HOME;
-                    ghost2Row = row;
-                    ghost2Column = column;
-                }
-                else if (value.equals("P")){
-                    thisValue = CellValue.PACMANHOME;
-                    pacmanRow = row;
-                    pacmanColumn = column;
-                }
-                else //(value.equals("E"))
-                {
-                    thisValue = CellValue.EMPTY;
-                }
-                grid[row][column] = thisValue;
-                column++;
+            else {
+                pacmanFlowField.setMoveTable(moveTable);
             }
-            row++;
-        }
-        pacmanLocation = new Point2D(pacmanRow, pacmanColumn);
-        pacmanVelocity = new Point2D(0,0);
-        ghost1Location = new Point2D(ghost1Row,ghost1Column);
-        ghost1Velocity = new Point2D(-1, 0);
-        ghost2Location = new Point2D(ghost2Row,ghost2Column);
-        ghost2Velocity = new Point2D(-1, 0);
+        }
+        pacmanLocation = level.getPacmanHome();
+        pacmanVelocity = Direction.NONE;
+        ghostCount = level.getGhostCount();
+        ensureGhostCapacity(ghostCount);
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            ghostHomes[ghost] = level.getGhostHome(ghost);
+            ghostLocations[ghost] = ghostHomes[ghost];
+            ghostVelocities[ghost] = (byte) Direction.UP.ordinal();
+            ghostStates[ghost] = ghostEatingMode ? GHOST_FRIGHTENED : GHOST_CHASING;
+        }
+        recordPreviousLocations();
         currentDirection = Direction.NONE;
         lastDirection = Direction.NONE;
+        rehash();
+        GameEvents.end(event, this);
+    }
+
+    /**
+     * Computes the Zobrist hash from scratch, as when a level starts
+     */
+    private void rehash() {
+        long hash = ZobristKeys.level(level);
+        for (int i = 0; i < eatenCellCount; i++) {
+            hash ^= ZobristKeys.eatenDot(eatenCells[i]);
+        }
+        hash ^= ZobristKeys.pacmanCell(pacmanLocation);
+        hash ^= ZobristKeys.pacmanDirection(lastDirection);
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            hash ^= ghostKey(ghost);
+        }
+        hash ^= ZobristKeys.ghostEatingMode(ghostEatingMode, ghostEatingModeCounter);
+        zobristHash = hash;
+    }
+
+    private long ghostKey(int ghost) {
+        return ZobristKeys.ghost(ghost, ghostLocations[ghost], ghostVelocities[ghost], ghostStates[ghost]);
+    }
+
+    /**
+     * Grows the ghost arrays and the changed cell list to hold at least the given number of ghosts
+     */
+    private void ensureGhostCapacity(int capacity) {
+        if (capacity <= ghostLocations.length) {
+            return;
+        }
+        int oldCapacity = ghostLocations.length;
+        ghostLocations = Arrays.copyOf(ghostLocations, capacity);
+        previousGhostLocations = Arrays.copyOf(previousGhostLocations, capacity);
+        ghostHomes = Arrays.copyOf(ghostHomes, capacity);
+        ghostVelocities = Arrays.copyOf(ghostVelocities, capacity);
+        ghostStates = Arrays.copyOf(ghostStates, capacity);
+        ghostStrategies = Arrays.copyOf(ghostStrategies, capacity);
+        Arrays.fill(ghostStrategies, oldCapacity, capacity, defaultGhostStrategy);
+        changedCells = new int[CHANGED_CELLS_PER_ACTOR * (1 + capacity)];
+        changedCellCount = 0;
     }
 
     /** Initialize values of instance variables and initialize level map
@@ -141,35 +225,40 @@ public class PacManModel {
     public void startNewGame() {
         this.gameOver = false;
         this.youWon = false;
-        this.ghostEatingMode = false;
+        this.setGhostEatingMode(false);
         dotCount = 0;
         rowCount = 0;
         columnCount = 0;
         this.score = 0;
         this.level = 1;
-        this.initializeLevel(Controller.getLevelFile(0));
+        this.ghostEatingModeCounter = 0;
+        this.tickCount = 0;
+        this.startLevel(0);
     }
 
     /** Initialize the level map for the next level
      *
      */
     public void startNextLevel() {
+        GameEvents.StartNextLevel event = GameEvents.beginStartNextLevel();
         if (this.isLevelComplete()) {
             this.level++;
-            rowCount = 0;
-            columnCount = 0;
+            //rowCount and columnCount are left alone: after the last level they still describe the board the views
+            //show the win on, and startLevel() sets them for the next one
             youWon = false;
-            ghostEatingMode = false;
-            try {
-                this.initializeLevel(Controller.getLevelFile(level - 1));
-            }
-            catch (ArrayIndexOutOfBoundsException e) {
-                //if there are no levels left in the level array, the game ends
+            this.setGhostEatingMode(false);
+            ghostEatingModeCounter = 0;
+            //if there are no levels left in the level catalog, the game ends
+            if (level > levels.size()) {
                 youWon = true;
                 gameOver = true;
                 level--;
             }
+            else {
+                this.startLevel(level - 1);
+            }
         }
+        GameEvents.end(event, this);
     }
 
     /**
@@ -177,188 +266,115 @@ public class PacManModel {
      * @param direction the most recently inputted direction for PacMan to move in
      */
     public void movePacman(Direction direction) {
-        Point2D potentialPacmanVelocity = changeVelocity(direction);
-        Point2D potentialPacmanLocation = pacmanLocation.add(potentialPacmanVelocity);
-        //if PacMan goes offscreen, wrap around
-        potentialPacmanLocation = setGoingOffscreenNewLocation(potentialPacmanLocation);
+        zobristHash ^= ZobristKeys.pacmanCell(pacmanLocation);
+        //the move table wraps around if PacMan goes offscreen, and gives -1 if he would hit a wall
+        int potentialPacmanLocation = moveTable.neighbor(pacmanLocation, direction);
         //determine whether PacMan should change direction or continue in its most recent direction
         //if most recent direction input is the same as previous direction input, check for walls
         if (direction.equals(lastDirection)) {
             //if moving in the same direction would result in hitting a wall, stop moving
-            if (grid[(int) potentialPacmanLocation.getX()][(int) potentialPacmanLocation.getY()] == CellValue.WALL){
-                pacmanVelocity = changeVelocity(Direction.NONE);
+            if (potentialPacmanLocation < 0) {
+                pacmanVelocity = Direction.NONE;
                 setLastDirection(Direction.NONE);
             }
             else {
-                pacmanVelocity = potentialPacmanVelocity;
+                pacmanVelocity = direction;
                 pacmanLocation = potentialPacmanLocation;
             }
         }
         //if most recent direction input is not the same as previous input, check for walls and corners before going in a new direction
         else {
             //if PacMan would hit a wall with the new direction input, check to make sure he would not hit a different wall if continuing in his previous direction
-            if (grid[(int) potentialPacmanLocation.getX()][(int) potentialPacmanLocation.getY()] == CellValue.WALL){
-                potentialPacmanVelocity = changeVelocity(lastDirection);
-                potentialPacmanLocation = pacmanLocation.add(potentialPacmanVelocity);
+            if (potentialPacmanLocation < 0) {
+                potentialPacmanLocation = moveTable.neighbor(pacmanLocation, lastDirection);
                 //if changing direction would hit another wall, stop moving
-                if (grid[(int) potentialPacmanLocation.getX()][(int) potentialPacmanLocation.getY()] == CellValue.WALL){
-                    pacmanVelocity = changeVelocity(Direction.NONE);
+                if (potentialPacmanLocation < 0) {
+                    pacmanVelocity = Direction.NONE;
                     setLastDirection(Direction.NONE);
                 }
                 else {
-                    pacmanVelocity = changeVelocity(lastDirection);
-                    pacmanLocation = pacmanLocation.add(pacmanVelocity);
+                    pacmanVelocity = lastDirection;
+                    pacmanLocation = potentialPacmanLocation;
                 }
             }
             //otherwise, change direction and keep moving
             else {
-                pacmanVelocity = potentialPacmanVelocity;
+                pacmanVelocity = direction;
                 pacmanLocation = potentialPacmanLocation;
                 setLastDirection(direction);
             }
         }
+        zobristHash ^= ZobristKeys.pacmanCell(pacmanLocation);
     }
 
     /**
      * Move ghosts to follow PacMan as established in moveAGhost() method
      */
     public void moveGhosts() {
-        Point2D[] ghost1Data = moveAGhost(ghost1Velocity, ghost1Location);
-        Point2D[] ghost2Data = moveAGhost(ghost2Velocity, ghost2Location);
-        ghost1Velocity = ghost1Data[0];
-        ghost1Location = ghost1Data[1];
-        ghost2Velocity = ghost2Data[0];
-        ghost2Location = ghost2Data[1];
-
-    }
-
-    /**
-     * Move a ghost to follow PacMan if he is in the same row or column, or move away from PacMan if in ghostEatingMode, otherwise move randomly when it hits a wall.
-     * @param velocity the current velocity of the specified ghost
-     * @param location the current location of the specified ghost
-     * @return an array of Point2Ds containing a new velocity and location for the ghost
-     */
-    public Point2D[] moveAGhost(Point2D velocity, Point2D location){
-        Random generator = new Random();
-        //if the ghost is in the same row or column as PacMan and not in ghostEatingMode,
-        // go in his direction until you get to a wall, then go a different direction
-        //otherwise, go in a random direction, and if you hit a wall go in a different random direction
-        if (!ghostEatingMode) {
-            //check if ghost is in PacMan's column and move towards him
-            if (location.getY() == pacmanLocation.getY()) {
-                if (location.getX() > pacmanLocation.getX()) {
-                    velocity = changeVelocity(Direction.UP);
-                } else {
-                    velocity = changeVelocity(Direction.DOWN);
-                }
-                Point2D potentialLocation = location.add(velocity);
-                //if the ghost would go offscreen, wrap around
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                //generate new random directions until ghost can move without hitting a wall
-                while (grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL) {
-                    int randomNum = generator.nextInt(4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
-            }
-            //check if ghost is in PacMan's row and move towards him
-            else if (location.getX() == pacmanLocation.getX()) {
-                if (location.getY() > pacmanLocation.getY()) {
-                    velocity = changeVelocity(Direction.LEFT);
-                } else {
-                    velocity = changeVelocity(Direction.RIGHT);
-                }
-                Point2D potentialLocation = location.add(velocity);
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                while (grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL) {
-                    int randomNum = generator.nextInt(4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
-            }
-            //move in a consistent random direction until it hits a wall, then choose a new random direction
-            else{
-                Point2D potentialLocation = location.add(velocity);
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                while(grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL){
-                    int randomNum = generator.nextInt( 4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
-            }
+        GameEvents.MoveGhosts event = GameEvents.beginMoveGhosts();
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            moveAGhost(ghost);
         }
-        //if the ghost is in the same row or column as Pacman and in ghostEatingMode, go in the opposite direction
-        // until it hits a wall, then go a different direction
-        //otherwise, go in a random direction, and if it hits a wall go in a different random direction
-        if (ghostEatingMode) {
-            if (location.getY() == pacmanLocation.getY()) {
-                if (location.getX() > pacmanLocation.getX()) {
-                    velocity = changeVelocity(Direction.DOWN);
-                } else {
-                    velocity = changeVelocity(Direction.UP);
-                }
-                Point2D potentialLocation = location.add(velocity);
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                while (grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL) {
-                    int randomNum = generator.nextInt(4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
-            } else if (location.getX() == pacmanLocation.getX()) {
-                if (location.getY() > pacmanLocation.getY()) {
-                    velocity = changeVelocity(Direction.RIGHT);
-                } else {
-                    velocity = changeVelocity(Direction.LEFT);
-                }
-                Point2D potentialLocation = location.add(velocity);
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                while (grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL) {
-                    int randomNum = generator.nextInt(4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
+        GameEvents.end(event, this);
+    }
+
+    /**
+     * Move a ghost in the direction chosen by its GhostStrategy, or in a random direction if that would hit a wall.
+     * The ghost's new location and velocity are written back in place.
+     * @param ghost the index of the ghost to move
+     */
+    public void moveAGhost(int ghost) {
+        int location = ghostLocations[ghost];
+        Direction velocity = ghostStrategies[ghost].chooseDirection(this, ghost);
+        //move in the chosen direction; if the ghost would hit a wall, pick a random direction among the ones that do
+        //not hit a wall
+        int potentialLocation = moveTable.neighbor(location, velocity);
+        int redrawCount = 0;
+        if (potentialLocation < 0) {
+            int exitCount = moveTable.exitCount(location);
+            if (exitCount > 0) {
+                velocity = moveTable.exit(location, nextRandomInt(exitCount));
+                potentialLocation = moveTable.neighbor(location, velocity);
+                redrawCount = 1;
             }
-            else{
-                Point2D potentialLocation = location.add(velocity);
-                potentialLocation = setGoingOffscreenNewLocation(potentialLocation);
-                while(grid[(int) potentialLocation.getX()][(int) potentialLocation.getY()] == CellValue.WALL){
-                    int randomNum = generator.nextInt( 4);
-                    Direction direction = intToDirection(randomNum);
-                    velocity = changeVelocity(direction);
-                    potentialLocation = location.add(velocity);
-                }
-                location = potentialLocation;
+            else {
+                potentialLocation = location;
             }
         }
-        Point2D[] data = {velocity, location};
-        return data;
-
+        zobristHash ^= ghostKey(ghost);
+        ghostLocations[ghost] = potentialLocation;
+        ghostVelocities[ghost] = (byte) velocity.ordinal();
+        zobristHash ^= ghostKey(ghost);
+        GameEvents.ghostDecision(ghost, velocity, redrawCount);
     }
 
+    /**
+     * The maze distance from a cell to PacMan, from the level's DistanceTable when it has one, and otherwise from a
+     * flow field toward PacMan that is shared by all ghosts and only recomputed when he has moved to another cell
+     * @param location a flat Board index
+     * @return the number of moves on the shortest path from the location to PacMan
+     */
+    public int distanceToPacman(int location) {
+        if (distanceTable != null) {
+            return distanceTable.distance(location, pacmanLocation);
+        }
+        pacmanFlowField.setTarget(pacmanLocation);
+        return pacmanFlowField.distance(location);
+    }
 
     /**
      * Wrap around the gameboard if the object's location would be off screen
      * @param objectLocation the specified object's location
-     * @return Point2D new wrapped-around location
+     * @return Location new wrapped-around location
      */
-    public Point2D setGoingOffscreenNewLocation(Point2D objectLocation) {
+    public Location setGoingOffscreenNewLocation(Location objectLocation) {
         //if object goes offscreen on the right
         if (objectLocation.getY() >= columnCount) {
-            objectLocation = new Point2D(objectLocation.getX(), 0);
+            objectLocation = new Location(objectLocation.getX(), 0);
         }
         //if object goes offscreen on the left
         if (objectLocation.getY() < 0) {
-            objectLocation = new Point2D(objectLocation.getX(), columnCount - 1);
+            objectLocation = new Location(objectLocation.getX(), columnCount - 1);
         }
         return objectLocation;
     }
@@ -384,138 +400,217 @@ public class PacManModel {
     }
 
     /**
-     * Resets ghost1's location and velocity to its home state
-     */
-    public void sendGhost1Home() {
-        for (int row = 0; row < this.rowCount; row++) {
-            for (int column = 0; column < this.columnCount; column++) {
-                if (grid[row][column] == CellValue.GHOST1HOME) {
-                    ghost1Location = new Point2D(row, column);
-                }
-            }
-        }
-        ghost1Velocity = new Point2D(-1, 0);
-    }
-
-    /**
-     * Resets ghost2's location and velocity to its home state
+     * Resets a ghost's location and velocity to its home state. Its state is left alone, so a ghost eaten in
+     * ghostEatingMode stays frightened until the mode ends.
+     * @param ghost the index of the ghost
      */
-    public void sendGhost2Home() {
-        for (int row = 0; row < this.rowCount; row++) {
-            for (int column = 0; column < this.columnCount; column++) {
-                if (grid[row][column] == CellValue.GHOST2HOME) {
-                    ghost2Location = new Point2D(row, column);
-                }
-            }
-        }
-        ghost2Velocity = new Point2D(-1, 0);
+    public void sendGhostHome(int ghost) {
+        zobristHash ^= ghostKey(ghost);
+        ghostLocations[ghost] = ghostHomes[ghost];
+        ghostVelocities[ghost] = (byte) Direction.UP.ordinal();
+        zobristHash ^= ghostKey(ghost);
     }
 
     /**
      * Updates the model to reflect the movement of PacMan and the ghosts and the change in state of any objects eaten
-     * during the course of these movements. Switches game state to or from ghost-eating mode.
+     * during the course of these movements. Switches game state to or from ghost-eating mode. Apart from loading the
+     * next level when the current one is complete, a step does not allocate.
      * @param direction the most recently inputted direction for PacMan to move in
      */
     public void step(Direction direction) {
+        GameEvents.Step event = GameEvents.beginStep();
+        tickCount++;
+        this.recordActorCells();
+        this.recordPreviousLocations();
+        this.countDownGhostEatingMode();
         this.movePacman(direction);
         //if PacMan is on a small dot, delete small dot
-        CellValue pacmanLocationCellValue = grid[(int) pacmanLocation.getX()][(int) pacmanLocation.getY()];
-        if (pacmanLocationCellValue == CellValue.SMALLDOT) {
-            grid[(int) pacmanLocation.getX()][(int) pacmanLocation.getY()] = CellValue.EMPTY;
+        byte pacmanLocationCellValue = board.get(pacmanLocation);
+        if (pacmanLocationCellValue == Board.SMALLDOT) {
+            board.set(pacmanLocation, Board.EMPTY);
+            this.recordEatenCell(pacmanLocation);
+            zobristHash ^= ZobristKeys.eatenDot(pacmanLocation);
             dotCount--;
+            dotsEatenCount++;
             score += 10;
         }
         //if PacMan is on a big dot, delete big dot and change game state to ghost-eating mode and initialize the counter
-        if (pacmanLocationCellValue == CellValue.BIGDOT) {
-            grid[(int) pacmanLocation.getX()][(int) pacmanLocation.getY()] = CellValue.EMPTY;
+        if (pacmanLocationCellValue == Board.BIGDOT) {
+            board.set(pacmanLocation, Board.EMPTY);
+            this.recordEatenCell(pacmanLocation);
+            zobristHash ^= ZobristKeys.eatenDot(pacmanLocation);
             dotCount--;
+            dotsEatenCount++;
+            bigDotsEatenCount++;
             score += 50;
-            ghostEatingMode = true;
-            Controller.setGhostEatingModeCounter();
-        }
-        //send ghost back to ghosthome if PacMan is on a ghost in ghost-eating mode
-        if (ghostEatingMode) {
-            if (pacmanLocation.equals(ghost1Location)) {
-                sendGhost1Home();
-                score += 100;
-            }
-            if (pacmanLocation.equals(ghost2Location)) {
-                sendGhost2Home();
-                score += 100;
-            }
-        }
-        //game over if PacMan is eaten by a ghost
-        else {
-            if (pacmanLocation.equals(ghost1Location)) {
-                gameOver = true;
-                pacmanVelocity = new Point2D(0,0);
-            }
-            if (pacmanLocation.equals(ghost2Location)) {
-                gameOver = true;
-                pacmanVelocity = new Point2D(0,0);
-            }
+            this.setGhostEatingMode(true);
+            setGhostEatingModeCounter(GHOST_EATING_MODE_DURATION);
         }
+        //send ghost back to ghosthome if PacMan is on a ghost in ghost-eating mode, game over if PacMan is eaten by a ghost
+        checkGhostCollisions();
         //move ghosts and checks again if ghosts or PacMan are eaten (repeating these checks helps account for even/odd numbers of squares between ghosts and PacMan)
         this.moveGhosts();
-        if (ghostEatingMode) {
-            if (pacmanLocation.equals(ghost1Location)) {
-                sendGhost1Home();
-                score += 100;
-            }
-            if (pacmanLocation.equals(ghost2Location)) {
-                sendGhost2Home();
-                score += 100;
-            }
-        }
-        else {
-            if (pacmanLocation.equals(ghost1Location)) {
-                gameOver = true;
-                pacmanVelocity = new Point2D(0,0);
-            }
-            if (pacmanLocation.equals(ghost2Location)) {
-                gameOver = true;
-                pacmanVelocity = new Point2D(0,0);
-            }
+        checkGhostCollisions();
+        this.recordActorCells();
+        if (board.isMapped()) {
+            this.pageInAroundActors();
         }
         //start a new level if level is complete
         if (this.isLevelComplete()) {
-            pacmanVelocity = new Point2D(0,0);
+            pacmanVelocity = Direction.NONE;
             startNextLevel();
         }
+        GameEvents.end(event, this);
     }
 
     /**
-     * Connects each direction to Point2D velocity vectors (Left = (-1,0), Right = (1,0), Up = (0,-1), Down = (0,1))
-     * @param direction
-     * @return Point2D velocity vector
+     * Has the parts of a mapped board around PacMan and the ghosts paged in, so the next steps find them in memory
      */
-    public Point2D changeVelocity(Direction direction){
-        if(direction == Direction.LEFT){
-            return new Point2D(0,-1);
+    private void pageInAroundActors() {
+        board.pageIn(pacmanLocation);
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            board.pageIn(ghostLocations[ghost]);
         }
-        else if(direction == Direction.RIGHT){
-            return new Point2D(0,1);
+    }
+
+    /**
+     * Adds the cells PacMan and the ghosts are on to the changed cells
+     */
+    private void recordActorCells() {
+        if (changedCellCount + 1 + ghostCount > changedCells.length) {
+            allCellsChanged = true;
         }
-        else if(direction == Direction.UP){
-            return new Point2D(-1,0);
+        if (allCellsChanged) {
+            return;
         }
-        else if(direction == Direction.DOWN){
-            return new Point2D(1,0);
+        changedCells[changedCellCount++] = pacmanLocation;
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            changedCells[changedCellCount++] = ghostLocations[ghost];
         }
-        else{
-            return new Point2D(0,0);
+    }
+
+    /**
+     * Adds a cell to the eaten cells, making room for it if the level has more dots than were made room for
+     */
+    private void recordEatenCell(int location) {
+        if (eatenCellCount == eatenCells.length) {
+            eatenCells = Arrays.copyOf(eatenCells, Math.max(1, 2 * eatenCells.length));
+        }
+        eatenCells[eatenCellCount++] = location;
+    }
+
+    private void recordPreviousLocations() {
+        previousPacmanLocation = pacmanLocation;
+        System.arraycopy(ghostLocations, 0, previousGhostLocations, 0, ghostCount);
+    }
+
+    /**
+     * Marks every cell as changed, so the view redraws the whole board
+     */
+    private void markAllCellsChanged() {
+        allCellsChanged = true;
+        changedCellCount = 0;
+    }
+
+    /**
+     * @return the number of cells that may have changed since clearChangedCells() was last called
+     */
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    /**
+     * @param i a number from 0 to getChangedCellCount() - 1
+     * @return the flat Board index of a changed cell (the same cell may be listed more than once)
+     */
+    public int getChangedCell(int i) {
+        return changedCells[i];
+    }
+
+    /**
+     * @return whether every cell should be treated as changed, as after loading a level
+     */
+    public boolean areAllCellsChanged() {
+        return allCellsChanged;
+    }
+
+    /**
+     * Called by the view once it has drawn the changed cells
+     */
+    public void clearChangedCells() {
+        changedCellCount = 0;
+        allCellsChanged = false;
+    }
+
+    /**
+     * Sends every frightened ghost PacMan is on back to its home, and ends the game if he is on any other ghost
+     */
+    private void checkGhostCollisions() {
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            if (ghostLocations[ghost] == pacmanLocation) {
+                if (ghostStates[ghost] == GHOST_FRIGHTENED) {
+                    sendGhostHome(ghost);
+                    score += 100;
+                    ghostsEatenCount++;
+                }
+                else {
+                    if (!gameOver) {
+                        deathCount++;
+                    }
+                    gameOver = true;
+                    pacmanVelocity = Direction.NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * When PacMan is in ghostEatingMode, count down the ghostEatingModeCounter and reset ghostEatingMode to false when
+     * the counter reaches 0
+     */
+    private void countDownGhostEatingMode() {
+        if (ghostEatingMode) {
+            setGhostEatingModeCounter(ghostEatingModeCounter - 1);
+            if (ghostEatingModeCounter <= 0) {
+                this.setGhostEatingMode(false);
+            }
         }
     }
 
-    public static boolean isGhostEatingMode() {
+    public boolean isGhostEatingMode() {
         return ghostEatingMode;
     }
 
-    public static void setGhostEatingMode(boolean ghostEatingModeBool) {
+    /**
+     * Turns ghostEatingMode on or off, frightening every ghost or setting every ghost chasing again
+     * @param ghostEatingModeBool
+     */
+    public void setGhostEatingMode(boolean ghostEatingModeBool) {
+        zobristHash ^= ZobristKeys.ghostEatingMode(ghostEatingMode, ghostEatingModeCounter);
         ghostEatingMode = ghostEatingModeBool;
+        zobristHash ^= ZobristKeys.ghostEatingMode(ghostEatingMode, ghostEatingModeCounter);
+        byte state = ghostEatingModeBool ? GHOST_FRIGHTENED : GHOST_CHASING;
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            zobristHash ^= ghostKey(ghost);
+            ghostStates[ghost] = state;
+            zobristHash ^= ghostKey(ghost);
+        }
     }
 
-    public static boolean isYouWon() {
+    private void setGhostEatingModeCounter(int counter) {
+        zobristHash ^= ZobristKeys.ghostEatingMode(ghostEatingMode, ghostEatingModeCounter);
+        ghostEatingModeCounter = counter;
+        zobristHash ^= ZobristKeys.ghostEatingMode(ghostEatingMode, ghostEatingModeCounter);
+    }
+
+    /**
+     * @return the number of steps left before ghostEatingMode ends
+     */
+    public int getGhostEatingModeCounter() {
+        return ghostEatingModeCounter;
+    }
+
+    public boolean isYouWon() {
         return youWon;
     }
 
@@ -527,12 +622,26 @@ public class PacManModel {
         return this.dotCount == 0;
     }
 
-    public static boolean isGameOver() {
+    public boolean isGameOver() {
         return gameOver;
     }
 
-    public CellValue[][] getGrid() {
-        return grid;
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the maze distances between the cells of the current level, or null if the level is too large for one
+     */
+    public DistanceTable getDistanceTable() {
+        return distanceTable;
+    }
+
+    /**
+     * @return the legal moves out of every cell of the current level
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
     }
 
     /**
@@ -541,11 +650,11 @@ public class PacManModel {
      * @return the Cell Value of cell (row, column)
      */
     public CellValue getCellValue(int row, int column) {
-        assert row >= 0 && row < this.grid.length && column >= 0 && column < this.grid[0].length;
-        return this.grid[row][column];
+        assert row >= 0 && row < this.rowCount && column >= 0 && column < this.columnCount;
+        return this.board.getCellValue(row, column);
     }
 
-    public static Direction getCurrentDirection() {
+    public Direction getCurrentDirection() {
         return currentDirection;
     }
 
@@ -553,12 +662,28 @@ public class PacManModel {
         currentDirection = direction;
     }
 
-    public static Direction getLastDirection() {
+    public Direction getLastDirection() {
         return lastDirection;
     }
 
     public void setLastDirection(Direction direction) {
+        zobristHash ^= ZobristKeys.pacmanDirection(lastDirection);
         lastDirection = direction;
+        zobristHash ^= ZobristKeys.pacmanDirection(lastDirection);
+    }
+
+    /**
+     * @return the levels of this game, in order of play
+     */
+    public LevelCatalog getLevelCatalog() {
+        return levels;
+    }
+
+    /**
+     * @return the number of levels in this game
+     */
+    public int getLevelCount() {
+        return levels.size();
     }
 
     public int getScore() {
@@ -582,7 +707,9 @@ public class PacManModel {
     }
 
     public void setLevel(int level) {
+        zobristHash ^= ZobristKeys.level(this.level);
         this.level = level;
+        zobristHash ^= ZobristKeys.level(this.level);
     }
 
     /**
@@ -612,51 +739,385 @@ public class PacManModel {
         this.columnCount = columnCount;
     }
 
-    public Point2D getPacmanLocation() {
+    public Location getPacmanLocation() {
+        return new Location(getPacmanRow(), getPacmanColumn());
+    }
+
+    public void setPacmanLocation(Location pacmanLocation) {
+        zobristHash ^= ZobristKeys.pacmanCell(this.pacmanLocation);
+        this.pacmanLocation = board.index(pacmanLocation.getX(), pacmanLocation.getY());
+        zobristHash ^= ZobristKeys.pacmanCell(this.pacmanLocation);
+        this.previousPacmanLocation = this.pacmanLocation;
+        markAllCellsChanged();
+    }
+
+    public int getPacmanRow() {
+        return pacmanLocation / columnCount;
+    }
+
+    public int getPacmanColumn() {
+        return pacmanLocation % columnCount;
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @return the (row, column) of the ghost's cell
+     */
+    public Location getGhostLocation(int ghost) {
+        return new Location(getGhostRow(ghost), getGhostColumn(ghost));
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @param ghostLocation the (row, column) of the ghost's new cell
+     */
+    public void setGhostLocation(int ghost, Location ghostLocation) {
+        zobristHash ^= ghostKey(ghost);
+        this.ghostLocations[ghost] = board.index(ghostLocation.getX(), ghostLocation.getY());
+        zobristHash ^= ghostKey(ghost);
+        this.previousGhostLocations[ghost] = this.ghostLocations[ghost];
+        markAllCellsChanged();
+    }
+
+    /**
+     * @return the flat Board index of PacMan's cell
+     */
+    public int getPacmanIndex() {
         return pacmanLocation;
     }
 
-    public void setPacmanLocation(Point2D pacmanLocation) {
-        this.pacmanLocation = pacmanLocation;
+    /**
+     * @return the flat Board index of the cell PacMan was in before the most recent step
+     */
+    public int getPreviousPacmanIndex() {
+        return previousPacmanLocation;
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @return the flat Board index of the cell the ghost was in before the most recent step
+     */
+    public int getPreviousGhostIndex(int ghost) {
+        return previousGhostLocations[ghost];
     }
 
-    public Point2D getGhost1Location() {
-        return ghost1Location;
+    /**
+     * @param ghost the index of the ghost
+     * @return the flat Board index of the ghost's cell
+     */
+    public int getGhostIndex(int ghost) {
+        return ghostLocations[ghost];
     }
 
-    public void setGhost1Location(Point2D ghost1Location) {
-        this.ghost1Location = ghost1Location;
+    public Direction getGhostVelocity(int ghost) {
+        return DIRECTIONS[ghostVelocities[ghost]];
     }
 
-    public Point2D getGhost2Location() {
-        return ghost2Location;
+    public void setGhostVelocity(int ghost, Direction velocity) {
+        zobristHash ^= ghostKey(ghost);
+        this.ghostVelocities[ghost] = (byte) velocity.ordinal();
+        zobristHash ^= ghostKey(ghost);
     }
 
-    public void setGhost2Location(Point2D ghost2Location) {
-        this.ghost2Location = ghost2Location;
+    /**
+     * @param ghost the index of the ghost
+     * @return the ghost's home cell as a flat Board index
+     */
+    public int getGhostHome(int ghost) {
+        return ghostHomes[ghost];
     }
 
-    public Point2D getPacmanVelocity() {
-        return pacmanVelocity;
+    /**
+     * @param ghost the index of the ghost
+     * @return GHOST_CHASING or GHOST_FRIGHTENED
+     */
+    public byte getGhostState(int ghost) {
+        return ghostStates[ghost];
     }
 
-    public void setPacmanVelocity(Point2D velocity) {
-        this.pacmanVelocity = velocity;
+    /**
+     * @param ghost the index of the ghost
+     * @return whether the ghost runs from PacMan and can be eaten by him
+     */
+    public boolean isGhostFrightened(int ghost) {
+        return ghostStates[ghost] == GHOST_FRIGHTENED;
+    }
+
+    /**
+     * @return the number of ghosts in the current level
+     */
+    public int getGhostCount() {
+        return ghostCount;
+    }
+
+    /**
+     * Seeds the generator used for every random decision of the game, such as the ghosts' random moves, so that the
+     * game can be repeated. Call it before startNewGame().
+     * @param seed the seed
+     */
+    public void setRandomSeed(long seed) {
+        randomState = seed;
+    }
+
+    /**
+     * Gives the same numbers as SplittableRandom.nextInt(bound) on a SplittableRandom created with the same seed
+     * @param bound a positive number
+     * @return a random number from 0 to bound - 1
+     */
+    private int nextRandomInt(int bound) {
+        int r = mixRandomState();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        //reject the top of the range, which would make the low numbers more likely
+        int u = r >>> 1;
+        while (u + m - (r = u % bound) < 0) {
+            u = mixRandomState() >>> 1;
+        }
+        return r;
+    }
+
+    private int mixRandomState() {
+        randomState += 0x9e3779b97f4a7c15L;
+        long z = randomState;
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
     }
 
-    public Point2D getGhost1Velocity() {
-        return ghost1Velocity;
+    /**
+     * Copies the state of the game into a snapshot, growing its arrays if they are too small. The cost is that of
+     * the actors plus one int per dot eaten since the level started.
+     * @param snapshot the snapshot to fill; whatever it held before is replaced
+     */
+    public void saveSnapshot(GameSnapshot snapshot) {
+        snapshot.tickCount = tickCount;
+        snapshot.level = level;
+        snapshot.score = score;
+        snapshot.dotCount = dotCount;
+        snapshot.gameOver = gameOver;
+        snapshot.youWon = youWon;
+        snapshot.ghostEatingMode = ghostEatingMode;
+        snapshot.ghostEatingModeCounter = ghostEatingModeCounter;
+        snapshot.pacmanLocation = pacmanLocation;
+        snapshot.previousPacmanLocation = previousPacmanLocation;
+        snapshot.pacmanVelocity = pacmanVelocity;
+        snapshot.lastDirection = lastDirection;
+        snapshot.currentDirection = currentDirection;
+        snapshot.ghostCount = ghostCount;
+        if (snapshot.ghostLocations.length < ghostCount) {
+            snapshot.ghostLocations = new int[ghostLocations.length];
+            snapshot.previousGhostLocations = new int[ghostLocations.length];
+            snapshot.ghostVelocities = new byte[ghostLocations.length];
+            snapshot.ghostStates = new byte[ghostLocations.length];
+        }
+        System.arraycopy(ghostLocations, 0, snapshot.ghostLocations, 0, ghostCount);
+        System.arraycopy(previousGhostLocations, 0, snapshot.previousGhostLocations, 0, ghostCount);
+        System.arraycopy(ghostVelocities, 0, snapshot.ghostVelocities, 0, ghostCount);
+        System.arraycopy(ghostStates, 0, snapshot.ghostStates, 0, ghostCount);
+        snapshot.randomState = randomState;
+        snapshot.zobristHash = zobristHash;
+        if (snapshot.eatenCells.length < eatenCellCount) {
+            snapshot.eatenCells = new int[eatenCells.length];
+        }
+        System.arraycopy(eatenCells, 0, snapshot.eatenCells, 0, eatenCellCount);
+        snapshot.eatenCellCount = eatenCellCount;
+    }
+
+    /**
+     * @return a new snapshot of the state of the game
+     */
+    public GameSnapshot snapshot() {
+        GameSnapshot snapshot = new GameSnapshot();
+        saveSnapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Puts the game back in the state of a snapshot taken from this model or from another one playing the same
+     * LevelCatalog. If the snapshot is of the level being played, only the cells eaten since the two states parted
+     * are changed on the board; otherwise the snapshot's level is started first. The view is told every cell has
+     * changed.
+     * @param snapshot the state to restore
+     */
+    public void restore(GameSnapshot snapshot) {
+        if (snapshot.level != level || currentLevel == null) {
+            this.startLevel(snapshot.level - 1);
+        }
+        //the level is only reloaded when it differs, so the board size is put back from it whatever happened since
+        rowCount = currentLevel.getRowCount();
+        columnCount = currentLevel.getColumnCount();
+        //both lists start with the cells eaten on the way to the state the two games last shared
+        int sharedCount = 0;
+        while (sharedCount < eatenCellCount && sharedCount < snapshot.eatenCellCount
+                && eatenCells[sharedCount] == snapshot.eatenCells[sharedCount]) {
+            sharedCount++;
+        }
+        for (int i = sharedCount; i < eatenCellCount; i++) {
+            board.set(eatenCells[i], currentLevel.getCell(eatenCells[i]));
+        }
+        for (int i = sharedCount; i < snapshot.eatenCellCount; i++) {
+            board.set(snapshot.eatenCells[i], Board.EMPTY);
+        }
+        if (eatenCells.length < snapshot.eatenCellCount) {
+            eatenCells = Arrays.copyOf(eatenCells, snapshot.eatenCells.length);
+        }
+        System.arraycopy(snapshot.eatenCells, sharedCount, eatenCells, sharedCount, snapshot.eatenCellCount - sharedCount);
+        eatenCellCount = snapshot.eatenCellCount;
+        tickCount = snapshot.tickCount;
+        level = snapshot.level;
+        score = snapshot.score;
+        dotCount = snapshot.dotCount;
+        gameOver = snapshot.gameOver;
+        youWon = snapshot.youWon;
+        ghostEatingMode = snapshot.ghostEatingMode;
+        ghostEatingModeCounter = snapshot.ghostEatingModeCounter;
+        pacmanLocation = snapshot.pacmanLocation;
+        previousPacmanLocation = snapshot.previousPacmanLocation;
+        pacmanVelocity = snapshot.pacmanVelocity;
+        lastDirection = snapshot.lastDirection;
+        currentDirection = snapshot.currentDirection;
+        System.arraycopy(snapshot.ghostLocations, 0, ghostLocations, 0, ghostCount);
+        System.arraycopy(snapshot.previousGhostLocations, 0, previousGhostLocations, 0, ghostCount);
+        System.arraycopy(snapshot.ghostVelocities, 0, ghostVelocities, 0, ghostCount);
+        System.arraycopy(snapshot.ghostStates, 0, ghostStates, 0, ghostCount);
+        randomState = snapshot.randomState;
+        zobristHash = snapshot.zobristHash;
+        markAllCellsChanged();
+    }
+
+    /**
+     * @return the number of steps since the game started, which is also the tick of the next step
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * A hash of the game state a step can change: the level, score, dots left, ghost-eating mode, game over, and the
+     * cells, velocities and states of PacMan and the ghosts. Two games that have been given the same seed and the
+     * same inputs have the same checksum after every step, so a replay can check it is still following the recorded
+     * game.
+     * @return the checksum
+     */
+    public int getStateChecksum() {
+        long hash = tickCount;
+        hash = hash * 31 + level;
+        hash = hash * 31 + score;
+        hash = hash * 31 + dotCount;
+        hash = hash * 31 + ghostEatingModeCounter;
+        hash = hash * 31 + (gameOver ? 1 : 0) + (youWon ? 2 : 0) + (ghostEatingMode ? 4 : 0);
+        hash = hash * 31 + pacmanLocation;
+        hash = hash * 31 + pacmanVelocity.ordinal();
+        hash = hash * 31 + currentDirection.ordinal();
+        for (int ghost = 0; ghost < ghostCount; ghost++) {
+            hash = hash * 31 + ghostLocations[ghost];
+            hash = hash * 31 + ghostVelocities[ghost];
+            hash = hash * 31 + ghostStates[ghost];
+        }
+        //spread the bits, so states that differ a little give checksums that differ a lot
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the state that decides how the game goes on: the level, the dots eaten, PacMan's cell
+     * and last direction, every ghost's cell, velocity and state, and the ghost-eating mode with the steps it has
+     * left. The score, the tick and the random generator are left out, so states reached by different paths hash the
+     * same. The hash is kept up to date as the state changes, so reading it is O(1) and a step only spends a few XORs
+     * on it.
+     * @return the hash, for example to look the state up in a TranspositionTable
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * @return the number of dots eaten in all the games this model has played
+     */
+    public long getDotsEatenCount() {
+        return dotsEatenCount;
+    }
+
+    /**
+     * @return the number of those dots that were big dots
+     */
+    public long getBigDotsEatenCount() {
+        return bigDotsEatenCount;
+    }
+
+    /**
+     * @return the number of frightened ghosts eaten in all the games this model has played
+     */
+    public long getGhostsEatenCount() {
+        return ghostsEatenCount;
+    }
+
+    /**
+     * @return the number of times PacMan has been caught in all the games this model has played
+     */
+    public long getDeathCount() {
+        return deathCount;
+    }
+
+    /**
+     * @return the number of levels this model has started, which goes up by one whenever a new level is loaded
+     */
+    public long getLevelLoadCount() {
+        return levelLoadCount;
+    }
+
+    /**
+     * @return how long the last level took to start, including waiting for the catalog to prepare it
+     */
+    public long getLastLevelLoadNanos() {
+        return lastLevelLoadNanos;
     }
 
-    public void setGhost1Velocity(Point2D ghost1Velocity) {
-        this.ghost1Velocity = ghost1Velocity;
+    public GhostStrategy getGhostStrategy(int ghost) {
+        return ghostStrategies[ghost];
     }
 
-    public Point2D getGhost2Velocity() {
-        return ghost2Velocity;
+    /**
+     * @param ghost the index of the ghost in the current level
+     * @param strategy how the ghost decides which way to go from now on
+     */
+    public void setGhostStrategy(int ghost, GhostStrategy strategy) {
+        ghostStrategies[ghost] = strategy;
+    }
+
+    /**
+     * Gives every ghost the same strategy, including the ghosts of levels that have more ghosts than this one
+     * @param strategy how the ghosts decide which way to go from now on
+     */
+    public void setGhostStrategies(GhostStrategy strategy) {
+        defaultGhostStrategy = strategy;
+        Arrays.fill(ghostStrategies, strategy);
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @return the row the ghost is in
+     */
+    public int getGhostRow(int ghost) {
+        return ghostLocations[ghost] / columnCount;
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @return the column the ghost is in
+     */
+    public int getGhostColumn(int ghost) {
+        return ghostLocations[ghost] % columnCount;
     }
 
-    public void setGhost2Velocity(Point2D ghost2Velocity) {
-        this.ghost2Velocity = ghost2Velocity;
+    public Direction getPacmanVelocity() {
+        return pacmanVelocity;
+    }
+
+    public void setPacmanVelocity(Direction velocity) {
+        this.pacmanVelocity = velocity;
     }
 }
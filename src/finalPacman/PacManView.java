@@ -2,6 +2,9 @@
  * @author Jessie Baskauf and Ellie Mamantov
  * Encorporates the various Views of the application that reference different parts of the Model, including the main
  * game board, the score label, the level label, and the Game Over label.
+ * The board is seen through a Camera that follows PacMan, so it may be far larger than the view: rowCount and
+ * columnCount are the size of the view, and only the cells of the camera's window have an ImageView. When the window
+ * moves, the ImageViews of the cells that left it are reused for the cells that entered it.
  */
 
 package finalPacman;
@@ -10,20 +13,32 @@ import javafx.fxml.FXML;
 import javafx.scene.Group;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import finalPacman.PacManModel.CellValue;
+import javafx.scene.shape.Rectangle;
 
-public class PacManView extends Group {
+import java.util.Arrays;
+
+public class PacManView extends Group implements BoardView {
     public final static double CELL_WIDTH = 20.0;
 
     @FXML private int rowCount;
     @FXML private int columnCount;
+    private int boardRowCount;
+    private int boardColumnCount;
+    private Camera camera;
+    //the cells and actors, moved under the clip so the camera's view of the board shows through it
+    private final Group content;
+    private final Rectangle clip;
+    //the ImageView of board cell (row, column) is cellViews[row % window rows][column % window columns]
     private ImageView[][] cellViews;
+    //PacMan and the ghosts are drawn by ImageViews of their own above the cells, so they can sit between two cells
+    private final ImageView pacmanView;
+    private ImageView[] ghostViews;
     private Image pacmanRightImage;
     private Image pacmanUpImage;
     private Image pacmanDownImage;
     private Image pacmanLeftImage;
-    private Image ghost1Image;
-    private Image ghost2Image;
+    //the ghosts take turns wearing these
+    private Image[] ghostImages;
     private Image blueGhostImage;
     private Image wallImage;
     private Image bigDotImage;
@@ -37,100 +52,254 @@ public class PacManView extends Group {
         this.pacmanUpImage = new Image(getClass().getResourceAsStream("/res/pacmanUp.gif"));
         this.pacmanDownImage = new Image(getClass().getResourceAsStream("/res/pacmanDown.gif"));
         this.pacmanLeftImage = new Image(getClass().getResourceAsStream("/res/pacmanLeft.gif"));
-        this.ghost1Image = new Image(getClass().getResourceAsStream("/res/redghost.gif"));
-        this.ghost2Image = new Image(getClass().getResourceAsStream("/res/ghost2.gif"));
+        this.ghostImages = new Image[] {new Image(getClass().getResourceAsStream("/res/redghost.gif")),
+                new Image(getClass().getResourceAsStream("/res/ghost2.gif"))};
         this.blueGhostImage = new Image(getClass().getResourceAsStream("/res/blueghost.gif"));
         this.wallImage = new Image(getClass().getResourceAsStream("/res/wall.png"));
         this.bigDotImage = new Image(getClass().getResourceAsStream("/res/whitedot.png"));
         this.smallDotImage = new Image(getClass().getResourceAsStream("/res/smalldot.png"));
+        this.pacmanView = createSpriteView();
+        this.ghostViews = new ImageView[0];
+        this.content = new Group();
+        this.clip = new Rectangle();
+        this.content.setClip(this.clip);
+        this.getChildren().add(this.content);
+    }
+
+    private static ImageView createSpriteView() {
+        ImageView spriteView = new ImageView();
+        spriteView.setFitWidth(CELL_WIDTH);
+        spriteView.setFitHeight(CELL_WIDTH);
+        return spriteView;
     }
 
     /**
-     * Constructs an empty grid of ImageViews
+     * Starts over with a view of the new size; the ImageViews are created when the first board is shown
      */
     private void initializeGrid() {
-        if (this.rowCount > 0 && this.columnCount > 0) {
-            this.cellViews = new ImageView[this.rowCount][this.columnCount];
-            for (int row = 0; row < this.rowCount; row++) {
-                for (int column = 0; column < this.columnCount; column++) {
-                    ImageView imageView = new ImageView();
-                    imageView.setX((double)column * CELL_WIDTH);
-                    imageView.setY((double)row * CELL_WIDTH);
-                    imageView.setFitWidth(CELL_WIDTH);
-                    imageView.setFitHeight(CELL_WIDTH);
-                    this.cellViews[row][column] = imageView;
-                    this.getChildren().add(imageView);
-                }
+        this.content.getChildren().clear();
+        this.cellViews = null;
+        this.camera = new Camera(this.rowCount, this.columnCount);
+        this.clip.setWidth(this.columnCount * CELL_WIDTH);
+        this.clip.setHeight(this.rowCount * CELL_WIDTH);
+    }
+
+    /**
+     * Constructs a grid of ImageViews the size of the camera's window over the model's board, with the actors'
+     * ImageViews on top
+     * @param model
+     */
+    private void fitToBoard(PacManModel model) {
+        this.boardRowCount = model.getRowCount();
+        this.boardColumnCount = model.getColumnCount();
+        this.camera.setBoardSize(this.boardRowCount, this.boardColumnCount);
+        this.content.getChildren().clear();
+        this.cellViews = new ImageView[this.camera.getWindowRowCount()][this.camera.getWindowColumnCount()];
+        for (int row = 0; row < this.cellViews.length; row++) {
+            for (int column = 0; column < this.cellViews[row].length; column++) {
+                ImageView imageView = new ImageView();
+                imageView.setFitWidth(CELL_WIDTH);
+                imageView.setFitHeight(CELL_WIDTH);
+                this.cellViews[row][column] = imageView;
+                this.content.getChildren().add(imageView);
             }
         }
+        this.content.getChildren().add(this.pacmanView);
+        this.content.getChildren().addAll(this.ghostViews);
     }
 
-    /** Updates the view to reflect the state of the model
+    /** Updates the view to reflect the state of the model. Only the cells the model reports as changed since the
+     * last update are redrawn, and only if they are in the camera's window, unless the model reports that every cell
+     * has changed (as after loading a level), when the camera jumps to PacMan and the whole window is redrawn. The
+     * actors' images are chosen here and their positions are set by interpolate().
      *
      * @param model
      */
+    @Override
     public void update(PacManModel model) {
-        assert model.getRowCount() == this.rowCount && model.getColumnCount() == this.columnCount;
-        //for each ImageView, set the image to correspond with the CellValue of that cell
-        for (int row = 0; row < this.rowCount; row++){
-            for (int column = 0; column < this.columnCount; column++){
-                CellValue value = model.getCellValue(row, column);
-                if (value == CellValue.WALL) {
-                    this.cellViews[row][column].setImage(this.wallImage);
-                }
-                else if (value == CellValue.BIGDOT) {
-                    this.cellViews[row][column].setImage(this.bigDotImage);
-                }
-                else if (value == CellValue.SMALLDOT) {
-                    this.cellViews[row][column].setImage(this.smallDotImage);
-                }
-                else {
-                    this.cellViews[row][column].setImage(null);
-                }
-                //check which direction PacMan is going in and display the corresponding image
-                if (row == model.getPacmanLocation().getX() && column == model.getPacmanLocation().getY() && (PacManModel.getLastDirection() == PacManModel.Direction.RIGHT || PacManModel.getLastDirection() == PacManModel.Direction.NONE)) {
-                    this.cellViews[row][column].setImage(this.pacmanRightImage);
-                }
-                else if (row == model.getPacmanLocation().getX() && column == model.getPacmanLocation().getY() && PacManModel.getLastDirection() == PacManModel.Direction.LEFT) {
-                    this.cellViews[row][column].setImage(this.pacmanLeftImage);
-                }
-                else if (row == model.getPacmanLocation().getX() && column == model.getPacmanLocation().getY() && PacManModel.getLastDirection() == PacManModel.Direction.UP) {
-                    this.cellViews[row][column].setImage(this.pacmanUpImage);
-                }
-                else if (row == model.getPacmanLocation().getX() && column == model.getPacmanLocation().getY() && PacManModel.getLastDirection() == PacManModel.Direction.DOWN) {
-                    this.cellViews[row][column].setImage(this.pacmanDownImage);
-                }
-                //make ghosts "blink" towards the end of ghostEatingMode (display regular ghost images on alternating updates of the counter)
-                if (PacManModel.isGhostEatingMode() && (Controller.getGhostEatingModeCounter() == 6 ||Controller.getGhostEatingModeCounter() == 4 || Controller.getGhostEatingModeCounter() == 2)) {
-                    if (row == model.getGhost1Location().getX() && column == model.getGhost1Location().getY()) {
-                        this.cellViews[row][column].setImage(this.ghost1Image);
-                    }
-                    if (row == model.getGhost2Location().getX() && column == model.getGhost2Location().getY()) {
-                        this.cellViews[row][column].setImage(this.ghost2Image);
-                    }
-                }
-                //display blue ghosts in ghostEatingMode
-                else if (PacManModel.isGhostEatingMode()) {
-                    if (row == model.getGhost1Location().getX() && column == model.getGhost1Location().getY()) {
-                        this.cellViews[row][column].setImage(this.blueGhostImage);
-                    }
-                    if (row == model.getGhost2Location().getX() && column == model.getGhost2Location().getY()) {
-                        this.cellViews[row][column].setImage(this.blueGhostImage);
-                    }
+        GameEvents.ViewUpdate event = GameEvents.beginViewUpdate();
+        Board board = model.getBoard();
+        boolean resized = this.cellViews == null || model.getRowCount() != this.boardRowCount
+                || model.getColumnCount() != this.boardColumnCount;
+        if (resized) {
+            this.fitToBoard(model);
+        }
+        if (resized || model.areAllCellsChanged()) {
+            this.followPacman(model, 1.0);
+            this.drawWindow(board);
+        }
+        else {
+            //set the image of each changed cell in the window to correspond with the value of that cell
+            for (int i = 0; i < model.getChangedCellCount(); i++) {
+                int location = model.getChangedCell(i);
+                int row = location / this.boardColumnCount;
+                int column = location % this.boardColumnCount;
+                if (this.camera.isInWindow(row, column)) {
+                    this.drawCell(board, row, column);
                 }
-                //dispaly regular ghost images otherwise
-                else {
-                    if (row == model.getGhost1Location().getX() && column == model.getGhost1Location().getY()) {
-                        this.cellViews[row][column].setImage(this.ghost1Image);
-                    }
-                    if (row == model.getGhost2Location().getX() && column == model.getGhost2Location().getY()) {
-                        this.cellViews[row][column].setImage(this.ghost2Image);
-                    }
+            }
+        }
+        this.matchGhostViews(model.getGhostCount());
+        this.chooseActorImages(model);
+        model.clearChangedCells();
+        GameEvents.end(event, model);
+    }
+
+    /**
+     * Points the camera at PacMan and moves the board under the clip to match, drawing the cells that came into the
+     * window
+     * @param model
+     * @param alpha how far the game loop is towards the next step, from 0 to 1
+     */
+    private void followPacman(PacManModel model, double alpha) {
+        int previousFirstRow = this.camera.getFirstRow();
+        int previousFirstColumn = this.camera.getFirstColumn();
+        double row = BoardView.interpolatedRow(model.getPreviousPacmanIndex(), model.getPacmanIndex(), this.boardColumnCount, alpha);
+        double column = BoardView.interpolatedColumn(model.getPreviousPacmanIndex(), model.getPacmanIndex(), this.boardColumnCount, alpha);
+        if (this.camera.follow(row, column)) {
+            this.drawNewCells(model.getBoard(), previousFirstRow, previousFirstColumn);
+        }
+        double x = this.camera.getLeft() * CELL_WIDTH;
+        double y = this.camera.getTop() * CELL_WIDTH;
+        this.content.setTranslateX(-x);
+        this.content.setTranslateY(-y);
+        this.clip.setX(x);
+        this.clip.setY(y);
+    }
+
+    /**
+     * Draws every cell of the camera's window
+     * @param board
+     */
+    private void drawWindow(Board board) {
+        int endRow = this.camera.getFirstRow() + this.camera.getWindowRowCount();
+        int endColumn = this.camera.getFirstColumn() + this.camera.getWindowColumnCount();
+        for (int row = this.camera.getFirstRow(); row < endRow; row++) {
+            for (int column = this.camera.getFirstColumn(); column < endColumn; column++) {
+                this.drawCell(board, row, column);
+            }
+        }
+    }
+
+    /**
+     * Draws the cells of the camera's window that were not in the window at its previous position; the others keep
+     * their ImageViews as they are
+     * @param board
+     * @param previousFirstRow
+     * @param previousFirstColumn
+     */
+    private void drawNewCells(Board board, int previousFirstRow, int previousFirstColumn) {
+        int windowRowCount = this.camera.getWindowRowCount();
+        int windowColumnCount = this.camera.getWindowColumnCount();
+        int endRow = this.camera.getFirstRow() + windowRowCount;
+        int endColumn = this.camera.getFirstColumn() + windowColumnCount;
+        for (int row = this.camera.getFirstRow(); row < endRow; row++) {
+            boolean rowWasInWindow = row >= previousFirstRow && row < previousFirstRow + windowRowCount;
+            for (int column = this.camera.getFirstColumn(); column < endColumn; column++) {
+                if (!rowWasInWindow || column < previousFirstColumn || column >= previousFirstColumn + windowColumnCount) {
+                    this.drawCell(board, row, column);
                 }
             }
         }
     }
 
+    /**
+     * Moves the ImageView that board cell (row, column) shares with the cells a window away to that cell, and shows
+     * the cell's image on it
+     */
+    private void drawCell(Board board, int row, int column) {
+        ImageView imageView = this.cellViews[row % this.cellViews.length][column % this.cellViews[0].length];
+        imageView.setX(column * CELL_WIDTH);
+        imageView.setY(row * CELL_WIDTH);
+        imageView.setImage(this.cellImage(board.get(row, column)));
+    }
+
+    /**
+     * Keeps one ImageView for every ghost of the current level, on top of the cells
+     * @param ghostCount the number of ghosts in the level
+     */
+    private void matchGhostViews(int ghostCount) {
+        if (this.ghostViews.length == ghostCount) {
+            return;
+        }
+        this.content.getChildren().removeAll(this.ghostViews);
+        ImageView[] ghostViews = Arrays.copyOf(this.ghostViews, ghostCount);
+        for (int ghost = this.ghostViews.length; ghost < ghostCount; ghost++) {
+            ghostViews[ghost] = createSpriteView();
+        }
+        this.ghostViews = ghostViews;
+        this.content.getChildren().addAll(this.ghostViews);
+    }
+
+    /**
+     * @param value the Board code of a cell
+     * @return the image for the cell when no actor is on it
+     */
+    private Image cellImage(byte value) {
+        if (value == Board.WALL) {
+            return this.wallImage;
+        }
+        else if (value == Board.BIGDOT) {
+            return this.bigDotImage;
+        }
+        else if (value == Board.SMALLDOT) {
+            return this.smallDotImage;
+        }
+        return null;
+    }
+
+    /**
+     * Chooses the images for PacMan and the ghosts
+     * @param model
+     */
+    private void chooseActorImages(PacManModel model) {
+        //check which direction PacMan is going in and display the corresponding image
+        PacManModel.Direction lastDirection = model.getLastDirection();
+        Image pacmanImage = this.pacmanRightImage;
+        if (lastDirection == PacManModel.Direction.LEFT) {
+            pacmanImage = this.pacmanLeftImage;
+        }
+        else if (lastDirection == PacManModel.Direction.UP) {
+            pacmanImage = this.pacmanUpImage;
+        }
+        else if (lastDirection == PacManModel.Direction.DOWN) {
+            pacmanImage = this.pacmanDownImage;
+        }
+        this.pacmanView.setImage(pacmanImage);
+        //display frightened ghosts blue, but make them "blink" towards the end of ghostEatingMode (display regular
+        //ghost images on alternating updates of the counter)
+        int counter = model.getGhostEatingModeCounter();
+        boolean blink = counter == 6 || counter == 4 || counter == 2;
+        for (int ghost = 0; ghost < this.ghostViews.length; ghost++) {
+            boolean blue = model.isGhostFrightened(ghost) && !blink;
+            this.ghostViews[ghost].setImage(blue ? this.blueGhostImage : this.ghostImages[ghost % this.ghostImages.length]);
+        }
+    }
+
+    /** Moves the camera with PacMan and the actors' ImageViews part of the way between their previous and current
+     * cells, hiding the ghosts outside the camera's window
+     *
+     * @param model
+     * @param alpha how far the game loop is towards the next step, from 0 to 1
+     */
+    @Override
+    public void interpolate(PacManModel model, double alpha) {
+        this.followPacman(model, alpha);
+        placeSprite(this.pacmanView, model.getPreviousPacmanIndex(), model.getPacmanIndex(), alpha);
+        for (int ghost = 0; ghost < this.ghostViews.length; ghost++) {
+            placeSprite(this.ghostViews[ghost], model.getPreviousGhostIndex(ghost), model.getGhostIndex(ghost), alpha);
+        }
+    }
+
+    private void placeSprite(ImageView spriteView, int previous, int current, double alpha) {
+        double row = BoardView.interpolatedRow(previous, current, this.boardColumnCount, alpha);
+        double column = BoardView.interpolatedColumn(previous, current, this.boardColumnCount, alpha);
+        spriteView.setX(column * CELL_WIDTH);
+        spriteView.setY(row * CELL_WIDTH);
+        spriteView.setVisible(this.camera.overlapsWindow(row, column));
+    }
+
+    @Override
     public int getRowCount() {
         return this.rowCount;
     }
@@ -140,6 +309,7 @@ public class PacManView extends Group {
         this.initializeGrid();
     }
 
+    @Override
     public int getColumnCount() {
         return this.columnCount;
     }
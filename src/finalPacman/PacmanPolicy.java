@@ -0,0 +1,17 @@
+/**
+ * Decides which direction to send PacMan in on each step of a game that is not driven by the keyboard, such as a
+ * headless batch simulation.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public interface PacmanPolicy {
+    /**
+     * @param model the game being played
+     * @param tick the number of steps taken so far in this game
+     * @return the direction to pass to model.step()
+     */
+    Direction chooseDirection(PacManModel model, int tick);
+}
@@ -0,0 +1,45 @@
+/**
+ * A Level together with the tables derived from its walls: the MoveTable and, for levels small enough, the
+ * DistanceTable. All three are immutable, so one PreparedLevel is shared by every game that plays the level and can
+ * be built on a background thread while a different level is being played.
+ */
+
+package finalPacman;
+
+public final class PreparedLevel {
+    private final Level level;
+    private final MoveTable moveTable;
+    private final DistanceTable distanceTable;
+
+    private PreparedLevel(Level level, MoveTable moveTable, DistanceTable distanceTable) {
+        this.level = level;
+        this.moveTable = moveTable;
+        this.distanceTable = distanceTable;
+    }
+
+    /**
+     * Builds the derived tables of a level
+     * @param level the level to prepare
+     * @return the level with its tables
+     */
+    public static PreparedLevel prepare(Level level) {
+        Board board = level.templateBoard();
+        MoveTable moveTable = new MoveTable(board);
+        return new PreparedLevel(level, moveTable, DistanceTable.build(board, moveTable));
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * @return the distance table, or null if the level has more than DistanceTable.MAX_OPEN_CELLS open cells
+     */
+    public DistanceTable getDistanceTable() {
+        return distanceTable;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Sends PacMan in a new random direction every few steps.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.util.SplittableRandom;
+
+public class RandomPacmanPolicy implements PacmanPolicy {
+    public static final int DEFAULT_TICKS_PER_DIRECTION_CHANGE = 8;
+
+    private final SplittableRandom generator;
+    private final int ticksPerDirectionChange;
+    private Direction direction;
+
+    public RandomPacmanPolicy(long seed) {
+        this(seed, DEFAULT_TICKS_PER_DIRECTION_CHANGE);
+    }
+
+    /**
+     * @param seed the seed of the policy's random generator
+     * @param ticksPerDirectionChange how many steps to keep going in each random direction
+     */
+    public RandomPacmanPolicy(long seed, int ticksPerDirectionChange) {
+        this.generator = new SplittableRandom(seed);
+        this.ticksPerDirectionChange = ticksPerDirectionChange;
+        this.direction = Direction.NONE;
+    }
+
+    @Override
+    public Direction chooseDirection(PacManModel model, int tick) {
+        if (tick % ticksPerDirectionChange == 0) {
+            direction = model.intToDirection(generator.nextInt(4));
+        }
+        return direction;
+    }
+}
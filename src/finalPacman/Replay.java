@@ -0,0 +1,146 @@
+/**
+ * A recorded game, kept as compactly as the game allows: the seed of its random generator, the ticks at which the
+ * player changed PacMan's direction with the new direction, and a checksum of the game state after every step (see
+ * PacManModel.getStateChecksum()). Since the model is deterministic, the seed and the inputs are enough to play the
+ * game again exactly; the checksums let ReplayEngine tell where a replay stops following the recorded game.
+ *
+ * The file format is a header (magic number, version, seed, number of inputs, number of ticks), the inputs as a tick
+ * and a Direction ordinal each, and then one checksum per tick, all big-endian.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class Replay {
+    public static final String EXTENSION = ".rpl";
+    //"PACR"
+    private static final int MAGIC = 0x50414352;
+    private static final int VERSION = 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long seed;
+    private final int[] inputTicks;
+    private final byte[] inputDirections;
+    private final int[] checksums;
+
+    /**
+     * @param seed the seed the game was started with
+     * @param inputTicks the tick of each input, in order; the replay takes ownership of the array
+     * @param inputDirections the Direction ordinal of each input; the replay takes ownership of the array
+     * @param checksums the state checksum after each step; the replay takes ownership of the array
+     */
+    Replay(long seed, int[] inputTicks, byte[] inputDirections, int[] checksums) {
+        this.seed = seed;
+        this.inputTicks = inputTicks;
+        this.inputDirections = inputDirections;
+        this.checksums = checksums;
+    }
+
+    /**
+     * @param path a replay file
+     * @return the replay
+     * @throws IllegalArgumentException if the file is not a replay
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Replay read(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException(path + " is not a version " + VERSION + " replay");
+            }
+            long seed = in.readLong();
+            int inputCount = in.readInt();
+            int tickCount = in.readInt();
+            if (inputCount < 0 || tickCount < 0) {
+                throw new IllegalArgumentException(path + " is damaged");
+            }
+            int[] inputTicks = new int[inputCount];
+            byte[] inputDirections = new byte[inputCount];
+            for (int input = 0; input < inputCount; input++) {
+                inputTicks[input] = in.readInt();
+                inputDirections[input] = in.readByte();
+                if (inputDirections[input] < 0 || inputDirections[input] >= DIRECTIONS.length) {
+                    throw new IllegalArgumentException(path + " is damaged: input " + input + " has no direction");
+                }
+            }
+            int[] checksums = new int[tickCount];
+            for (int tick = 0; tick < tickCount; tick++) {
+                checksums[tick] = in.readInt();
+            }
+            return new Replay(seed, inputTicks, inputDirections, checksums);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read replay " + path, e);
+        }
+    }
+
+    /**
+     * @param path the file to write, replacing any existing file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void write(Path path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(inputTicks.length);
+            out.writeInt(checksums.length);
+            for (int input = 0; input < inputTicks.length; input++) {
+                out.writeInt(inputTicks[input]);
+                out.writeByte(inputDirections[input]);
+            }
+            for (int checksum : checksums) {
+                out.writeInt(checksum);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write replay " + path, e);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getInputCount() {
+        return inputTicks.length;
+    }
+
+    /**
+     * @param input a number from 0 to getInputCount() - 1
+     * @return the tick of the step the input was given before
+     */
+    public int getInputTick(int input) {
+        return inputTicks[input];
+    }
+
+    /**
+     * @param input a number from 0 to getInputCount() - 1
+     * @return the direction PacMan was given
+     */
+    public Direction getInputDirection(int input) {
+        return DIRECTIONS[inputDirections[input]];
+    }
+
+    /**
+     * @return the number of steps in the recorded game
+     */
+    public int getTickCount() {
+        return checksums.length;
+    }
+
+    /**
+     * @param tick a number from 0 to getTickCount() - 1
+     * @return the state checksum after that step
+     */
+    public int getChecksum(int tick) {
+        return checksums[tick];
+    }
+}
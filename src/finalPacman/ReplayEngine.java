@@ -0,0 +1,120 @@
+/**
+ * Plays recorded games (see Replay) again headless, as fast as the model steps, and checks after every step that the
+ * game is in the same state as when it was recorded. A replay that matches to the end reproduces the recorded game
+ * exactly, so a bug report with a replay file can be stepped to the tick where it went wrong; a replay that stops
+ * matching after a change to the ghosts or the rules shows the first tick the change made a difference.
+ *
+ * The replay must be played with the levels and ghost strategies it was recorded with.
+ *
+ * Usage: java finalPacman.ReplayEngine [--levels=DIRECTORY] replay files or directories of them...
+ * Prints the result for every replay and exits with status 1 if any of them did not match.
+ */
+
+package finalPacman;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public final class ReplayEngine {
+    public static final int MATCHED = -1;
+
+    private final PacManModel model;
+
+    /**
+     * @param levels the levels the replays were recorded on
+     */
+    public ReplayEngine(LevelCatalog levels) {
+        this.model = new PacManModel(levels);
+    }
+
+    public static void main(String[] args) throws IOException {
+        LevelCatalog levels = LevelCatalog.getDefault();
+        List<Path> replayFiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--levels=")) {
+                levels = LevelCatalog.fromDirectory(Paths.get(arg.substring("--levels=".length())));
+            }
+            else if (Files.isDirectory(Paths.get(arg))) {
+                try (Stream<Path> files = Files.list(Paths.get(arg))) {
+                    files.filter(file -> file.toString().endsWith(Replay.EXTENSION)).sorted().forEach(replayFiles::add);
+                }
+            }
+            else {
+                replayFiles.add(Paths.get(arg));
+            }
+        }
+        LevelCatalog catalog = levels;
+        long startTime = System.nanoTime();
+        //each replay gets its own model, so they are checked on every core
+        String[] results = new String[replayFiles.size()];
+        long[] ticks = new long[replayFiles.size()];
+        int failures = IntStream.range(0, replayFiles.size()).parallel().map(index -> {
+            Replay replay;
+            try {
+                replay = Replay.read(replayFiles.get(index));
+            } catch (IllegalArgumentException | UncheckedIOException e) {
+                results[index] = e.getMessage();
+                return 1;
+            }
+            int mismatch = new ReplayEngine(catalog).verify(replay);
+            ticks[index] = replay.getTickCount();
+            results[index] = mismatch == MATCHED ? "matches all " + replay.getTickCount() + " ticks"
+                    : "differs from the recorded game at tick " + mismatch;
+            return mismatch == MATCHED ? 0 : 1;
+        }).sum();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long totalTicks = 0;
+        for (int index = 0; index < results.length; index++) {
+            System.out.println(replayFiles.get(index) + ": " + results[index]);
+            totalTicks += ticks[index];
+        }
+        System.out.printf("%d replays, %d ticks in %.3f s (%.0f ticks/s)%n", results.length, totalTicks, seconds, totalTicks / seconds);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays a whole replay, checking the state after every step
+     * @param replay the recorded game
+     * @return the first tick after which the state differs from the recorded one, or MATCHED
+     */
+    public int verify(Replay replay) {
+        return play(replay, replay.getTickCount());
+    }
+
+    /**
+     * Starts the recorded game and plays its first steps, checking the state after every one. Afterwards getModel()
+     * is the game as it was after the last step played.
+     * @param replay the recorded game
+     * @param tickCount how many steps to play, at most replay.getTickCount()
+     * @return the first tick after which the state differs from the recorded one, or MATCHED
+     */
+    public int play(Replay replay, int tickCount) {
+        model.setRandomSeed(replay.getSeed());
+        model.startNewGame();
+        int input = 0;
+        for (int tick = 0; tick < tickCount; tick++) {
+            //the inputs given before this step
+            while (input < replay.getInputCount() && replay.getInputTick(input) <= tick) {
+                model.setCurrentDirection(replay.getInputDirection(input++));
+            }
+            model.step(model.getCurrentDirection());
+            if (model.getStateChecksum() != replay.getChecksum(tick)) {
+                return tick;
+            }
+        }
+        return MATCHED;
+    }
+
+    public PacManModel getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Records a game as it is played, for a Replay: the seed it was started with, every change of PacMan's direction
+ * with the tick of the step it came before, and the state checksum after every step. Recording costs an array store
+ * per step, plus an occasional doubling of the arrays.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.util.Arrays;
+
+public final class ReplayRecorder {
+    private long seed;
+    private int[] inputTicks = new int[64];
+    private byte[] inputDirections = new byte[64];
+    private int inputCount;
+    private int[] checksums = new int[1024];
+    private int tickCount;
+
+    /**
+     * Forgets the previous game and starts recording a new one
+     * @param seed the seed the new game is started with
+     */
+    public void start(long seed) {
+        this.seed = seed;
+        this.inputCount = 0;
+        this.tickCount = 0;
+    }
+
+    /**
+     * Records that PacMan was given a new direction
+     * @param tick the tick of the next step, from PacManModel.getTickCount()
+     * @param direction the new direction
+     */
+    public void recordInput(int tick, Direction direction) {
+        if (inputCount == inputTicks.length) {
+            inputTicks = Arrays.copyOf(inputTicks, 2 * inputCount);
+            inputDirections = Arrays.copyOf(inputDirections, 2 * inputCount);
+        }
+        inputTicks[inputCount] = tick;
+        inputDirections[inputCount] = (byte) direction.ordinal();
+        inputCount++;
+    }
+
+    /**
+     * Records the state after a step
+     * @param checksum the model's state checksum
+     */
+    public void recordTick(int checksum) {
+        if (tickCount == checksums.length) {
+            checksums = Arrays.copyOf(checksums, 2 * tickCount);
+        }
+        checksums[tickCount++] = checksum;
+    }
+
+    /**
+     * Forgets the steps after a tick and the inputs given after it, as when the game has been rewound to that tick
+     * @param tickCount the number of steps to keep
+     */
+    public void truncate(int tickCount) {
+        this.tickCount = Math.min(this.tickCount, tickCount);
+        while (inputCount > 0 && inputTicks[inputCount - 1] >= tickCount) {
+            inputCount--;
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of steps recorded since start()
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return the game recorded so far
+     */
+    public Replay toReplay() {
+        return new Replay(seed, Arrays.copyOf(inputTicks, inputCount), Arrays.copyOf(inputDirections, inputCount),
+                Arrays.copyOf(checksums, tickCount));
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The snapshots of the most recent ticks of a game, for rewinding it at once or for branching a search from a recent
+ * state. The buffer holds a fixed number of GameSnapshots and refills the oldest one on every record(), so once the
+ * game has filled it, recording a tick does not allocate.
+ */
+
+package finalPacman;
+
+public final class RewindBuffer {
+    private final GameSnapshot[] snapshots;
+    //the slot of the most recent snapshot
+    private int newest;
+    private int size;
+
+    /**
+     * @param capacity how many ticks the buffer goes back
+     */
+    public RewindBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("a rewind buffer holds at least one tick, not " + capacity);
+        }
+        this.snapshots = new GameSnapshot[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            this.snapshots[slot] = new GameSnapshot();
+        }
+        this.newest = capacity - 1;
+    }
+
+    /**
+     * Saves the state of the game, replacing the oldest snapshot when the buffer is full. Called after every step.
+     * @param model the game
+     */
+    public void record(PacManModel model) {
+        this.newest = (this.newest + 1) % this.snapshots.length;
+        model.saveSnapshot(this.snapshots[this.newest]);
+        this.size = Math.min(this.size + 1, this.snapshots.length);
+    }
+
+    /**
+     * @param ticksBack 0 for the most recent snapshot, up to size() - 1 for the oldest
+     * @return the snapshot; it is refilled by later calls to record()
+     */
+    public GameSnapshot get(int ticksBack) {
+        if (ticksBack < 0 || ticksBack >= this.size) {
+            throw new IndexOutOfBoundsException("the buffer holds " + this.size + " ticks, not " + (ticksBack + 1));
+        }
+        return this.snapshots[(this.newest - ticksBack + this.snapshots.length) % this.snapshots.length];
+    }
+
+    /**
+     * Puts the game back in the state of an earlier snapshot and forgets the snapshots after it, so recording carries
+     * on from there
+     * @param model the game
+     * @param ticksBack 0 to undo everything since the most recent snapshot, up to size() - 1
+     */
+    public void rewind(PacManModel model, int ticksBack) {
+        model.restore(get(ticksBack));
+        this.newest = (this.newest - ticksBack + this.snapshots.length) % this.snapshots.length;
+        this.size -= ticksBack;
+    }
+
+    /**
+     * Forgets every snapshot, as when a new game starts
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * @return the number of snapshots held
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.snapshots.length;
+    }
+}
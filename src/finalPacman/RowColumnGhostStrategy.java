@@ -0,0 +1,26 @@
+/**
+ * The original ghost behavior: if the ghost is in the same row or column as PacMan, go in his direction (or the
+ * opposite direction in ghostEatingMode), otherwise keep going in a consistent direction until hitting a wall.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+public class RowColumnGhostStrategy implements GhostStrategy {
+    @Override
+    public Direction chooseDirection(PacManModel model, int ghost) {
+        int row = model.getGhostRow(ghost);
+        int column = model.getGhostColumn(ghost);
+        int pacmanRow = model.getPacmanRow();
+        int pacmanColumn = model.getPacmanColumn();
+        boolean ghostEatingMode = model.isGhostFrightened(ghost);
+        if (column == pacmanColumn) {
+            return (row > pacmanRow) != ghostEatingMode ? Direction.UP : Direction.DOWN;
+        }
+        else if (row == pacmanRow) {
+            return (column > pacmanColumn) != ghostEatingMode ? Direction.LEFT : Direction.RIGHT;
+        }
+        return model.getGhostVelocity(ghost);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Ignores PacMan and heads for a corner of the board, in both normal and ghostEatingMode. Ghost 0 takes the top left
+ * corner, ghost 1 the top right, ghost 2 the bottom left and ghost 3 the bottom right, and so on around again.
+ */
+
+package finalPacman;
+
+public class ScatterGhostStrategy extends DistanceGhostStrategy {
+    @Override
+    protected int distance(PacManModel model, int ghost, int location) {
+        int columnCount = model.getColumnCount();
+        int row = location / columnCount;
+        int column = location - row * columnCount;
+        int targetRow = (ghost & 2) == 0 ? 0 : model.getRowCount() - 1;
+        int targetColumn = (ghost & 1) == 0 ? 0 : columnCount - 1;
+        return Math.abs(row - targetRow) + Math.abs(column - targetColumn);
+    }
+
+    @Override
+    protected boolean fleesInGhostEatingMode() {
+        return false;
+    }
+}
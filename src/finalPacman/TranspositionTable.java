@@ -0,0 +1,80 @@
+/**
+ * A fixed-size table from Zobrist hashes (see PacManModel.getZobristHash()) to values a search has worked out for
+ * those states, so it can skip a state it has already evaluated. The table never grows: each hash has one slot, and a
+ * new entry replaces whatever was in its slot, so it only forgets, never fills up.
+ *
+ * Any number of threads can read and write the table at once without locking. Each slot holds the hash XORed with the
+ * value next to the value itself; a reader that sees half of one writer's entry and half of another's finds that the
+ * two no longer XOR to the hash it asked for, and treats the slot as empty.
+ */
+
+package finalPacman;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class TranspositionTable {
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * @param capacity the number of entries, rounded up to a power of two; each takes 16 bytes
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 29) {
+            throw new IllegalArgumentException("a transposition table holds from 1 to 2^29 entries, not " + capacity);
+        }
+        int entryCount = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicLongArray(2 * entryCount);
+        this.mask = entryCount - 1;
+        this.clear();
+    }
+
+    //the slot of the first of an entry's two longs
+    private int slot(long hash) {
+        //the keys are well mixed, so the low bits of the hash spread states evenly over the slots
+        return ((int) hash & this.mask) << 1;
+    }
+
+    /**
+     * @param hash the Zobrist hash of a state
+     * @param missingValue what to return if the state is not in the table
+     * @return the value last put for the state, or missingValue if it is not in the table (or has been replaced)
+     */
+    public long get(long hash, long missingValue) {
+        int slot = slot(hash);
+        long value = this.slots.get(slot + 1);
+        if ((this.slots.get(slot) ^ value) != hash) {
+            return missingValue;
+        }
+        return value;
+    }
+
+    /**
+     * Stores a value for a state, replacing any entry that was in its slot
+     * @param hash the Zobrist hash of the state
+     * @param value the value; a search that stores a score rather than a long can use Double.doubleToRawLongBits()
+     */
+    public void put(long hash, long value) {
+        int slot = slot(hash);
+        this.slots.set(slot, hash ^ value);
+        this.slots.set(slot + 1, value);
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        for (int slot = 0; slot < this.slots.length(); slot += 2) {
+            //an empty slot reads as an entry for hash -1, which no state is likely to have, rather than for hash 0
+            this.slots.set(slot, -1L);
+            this.slots.set(slot + 1, 0L);
+        }
+    }
+
+    /**
+     * @return the number of entries the table holds
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * Many PacMan games stepped in lockstep for reinforcement learning, in the style of a gym vector environment. Every
+ * call to step() takes one action per game, steps all of them, and writes each game's observation, reward and whether
+ * its episode ended. A game whose episode ends is started again at once from its next seed, so its observation is
+ * already the first one of the new episode.
+ *
+ * An observation is PLANE_COUNT planes of rowCount x columnCount bytes, one byte per cell, holding 1 where the plane's
+ * feature is and 0 elsewhere (the GHOST plane counts the ghosts on a cell). All observations are written into one
+ * ByteBuffer, game after game, plane after plane, row after row. Cells outside a smaller board are walls, and cells of
+ * a larger board beyond the observation are left out. The buffer can be a direct buffer of our own or a file mapped
+ * with mapObservationFile(), which a trainer process on the same host maps too, so observations reach it without a
+ * copy.
+ *
+ * Only the cells the model reports as changed (see PacManModel.getChangedCell()) are written again after a step, so a
+ * step costs about the same on any size of board. The games are split evenly over a fixed set of threads that wait
+ * for each step, and nothing is allocated per step once the games have played every level once.
+ *
+ * Usage: java finalPacman.VectorEnv [games] [steps] [threads]
+ * Steps games with random actions and reports the steps per second and the bytes allocated per step.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public final class VectorEnv implements AutoCloseable {
+    //the observation planes
+    public static final int WALL = 0;
+    public static final int DOT = 1;
+    public static final int BIG_DOT = 2;
+    public static final int GHOST = 3;
+    public static final int PACMAN = 4;
+    public static final int GHOST_EATING_MODE = 5;
+    public static final int PLANE_COUNT = 6;
+    //the actions are Direction ordinals
+    public static final int ACTION_COUNT = Direction.values().length;
+    private static final Direction[] ACTIONS = Direction.values();
+
+    private final int envCount;
+    private final int rowCount;
+    private final int columnCount;
+    private final int planeBytes;
+    private final int observationBytes;
+    private final ByteBuffer observations;
+    private final PacManModel[] models;
+    private final long[] seeds;
+    private final int[] lastScores;
+    private final boolean[] ghostEatingModes;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private int episodeTickLimit = BatchSimulator.DEFAULT_TICK_CAP;
+    private int[] actions;
+
+    //threads 1 and up step their share of the games when generation changes; the caller steps the first share
+    private final Thread[] workers;
+    private final AtomicInteger pendingWorkers = new AtomicInteger();
+    private volatile int generation;
+    private volatile boolean closed;
+    private volatile Thread caller;
+
+    /**
+     * @param levels the levels every game plays
+     * @param envCount the number of games
+     * @param rowCount the rows of each observation plane
+     * @param columnCount the columns of each observation plane
+     * @param observations where to write the observations; it needs getObservationBytes() bytes per game
+     * @param threadCount how many threads step the games, including the one that calls step()
+     */
+    public VectorEnv(LevelCatalog levels, int envCount, int rowCount, int columnCount, ByteBuffer observations, int threadCount) {
+        this.envCount = envCount;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.planeBytes = rowCount * columnCount;
+        this.observationBytes = PLANE_COUNT * this.planeBytes;
+        if (observations.capacity() < (long) envCount * this.observationBytes) {
+            throw new IllegalArgumentException("observations of " + envCount + " games need "
+                    + (long) envCount * this.observationBytes + " bytes, not " + observations.capacity());
+        }
+        this.observations = observations;
+        this.models = new PacManModel[envCount];
+        for (int env = 0; env < envCount; env++) {
+            this.models[env] = new PacManModel(levels);
+        }
+        this.seeds = new long[envCount];
+        this.lastScores = new int[envCount];
+        this.ghostEatingModes = new boolean[envCount];
+        this.rewards = new float[envCount];
+        this.dones = new boolean[envCount];
+        this.workers = new Thread[Math.max(0, Math.min(threadCount, envCount) - 1)];
+        for (int i = 0; i < this.workers.length; i++) {
+            int share = i + 1;
+            this.workers[i] = new Thread(() -> work(share), "vector-env-" + share);
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Writes the observations into a new direct buffer and steps the games on every core
+     */
+    public VectorEnv(LevelCatalog levels, int envCount, int rowCount, int columnCount) {
+        this(levels, envCount, rowCount, columnCount, ByteBuffer.allocateDirect(envCount * PLANE_COUNT * rowCount * columnCount),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Maps a file to hold the observations, for a trainer process that maps the same file to read them
+     * @param file the file, created if it does not exist
+     * @param byteCount the size of the observations, envCount * getObservationBytes()
+     * @return the mapped buffer
+     * @throws UncheckedIOException if the file cannot be created or mapped
+     */
+    public static MappedByteBuffer mapObservationFile(Path file, int byteCount) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, byteCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map observations to " + file, e);
+        }
+    }
+
+    public static void main(String[] args) {
+        int envCount = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int stepCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        LevelCatalog levels = LevelCatalog.getDefault();
+        Level firstLevel = levels.get(0).getLevel();
+        ByteBuffer observations = ByteBuffer.allocateDirect(envCount * PLANE_COUNT * firstLevel.getRowCount()
+                * firstLevel.getColumnCount());
+        try (VectorEnv env = new VectorEnv(levels, envCount, firstLevel.getRowCount(), firstLevel.getColumnCount(),
+                observations, threadCount)) {
+            long[] seeds = new long[envCount];
+            for (int i = 0; i < envCount; i++) {
+                seeds[i] = i;
+            }
+            env.reset(seeds);
+            int[] actions = new int[envCount];
+            SplittableRandom random = new SplittableRandom(0);
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long episodes = 0;
+            long allocatedBytes = 0;
+            long startTime = System.nanoTime();
+            for (int step = 0; step < stepCount; step++) {
+                for (int i = 0; i < envCount; i++) {
+                    actions[i] = random.nextInt(ACTION_COUNT);
+                }
+                long before = threadBean.getCurrentThreadAllocatedBytes();
+                env.step(actions);
+                allocatedBytes += threadBean.getCurrentThreadAllocatedBytes() - before;
+                for (int i = 0; i < envCount; i++) {
+                    if (env.getDones()[i]) {
+                        episodes++;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            long envSteps = (long) envCount * stepCount;
+            System.out.printf("%d games x %d steps on %d threads in %.3f s (%.0f game steps/s), %d episodes ended%n",
+                    envCount, stepCount, threadCount, seconds, envSteps / seconds, episodes);
+            System.out.printf("%.2f bytes allocated per step() on the calling thread%n", (double) allocatedBytes / stepCount);
+        }
+    }
+
+    /**
+     * Starts a new game in every env and writes the first observations
+     * @param seeds the seed of each game; when a game ends, the next one is played from its seed plus getEnvCount()
+     */
+    public void reset(long[] seeds) {
+        for (int env = 0; env < this.envCount; env++) {
+            this.seeds[env] = seeds[env];
+            startEpisode(env);
+            this.rewards[env] = 0;
+            this.dones[env] = false;
+        }
+    }
+
+    /**
+     * Steps every game once, writing the observations and filling getRewards() and getDones()
+     * @param actions the action of each game, the ordinal of the Direction to pass to PacManModel.step()
+     */
+    public void step(int[] actions) {
+        this.actions = actions;
+        if (this.workers.length == 0) {
+            stepShare(0);
+            return;
+        }
+        this.caller = Thread.currentThread();
+        this.pendingWorkers.set(this.workers.length);
+        //the volatile write publishes the actions to the workers
+        this.generation++;
+        for (Thread worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+        stepShare(0);
+        while (this.pendingWorkers.get() != 0) {
+            LockSupport.park(this);
+        }
+    }
+
+    private void work(int share) {
+        int seenGeneration = 0;
+        while (!this.closed) {
+            while (this.generation == seenGeneration && !this.closed) {
+                LockSupport.park(this);
+            }
+            if (this.closed) {
+                return;
+            }
+            seenGeneration = this.generation;
+            stepShare(share);
+            if (this.pendingWorkers.decrementAndGet() == 0) {
+                LockSupport.unpark(this.caller);
+            }
+        }
+    }
+
+    //steps the games of one thread's share
+    private void stepShare(int share) {
+        int shareCount = this.workers.length + 1;
+        int firstEnv = (int) ((long) this.envCount * share / shareCount);
+        int lastEnv = (int) ((long) this.envCount * (share + 1) / shareCount);
+        for (int env = firstEnv; env < lastEnv; env++) {
+            stepEnv(env);
+        }
+    }
+
+    private void stepEnv(int env) {
+        PacManModel model = this.models[env];
+        model.step(ACTIONS[this.actions[env]]);
+        this.rewards[env] = model.getScore() - this.lastScores[env];
+        this.lastScores[env] = model.getScore();
+        boolean done = model.isGameOver() || model.getTickCount() >= this.episodeTickLimit;
+        this.dones[env] = done;
+        if (done) {
+            this.seeds[env] += this.envCount;
+            startEpisode(env);
+        }
+        else {
+            writeObservation(env);
+        }
+    }
+
+    private void startEpisode(int env) {
+        PacManModel model = this.models[env];
+        model.setRandomSeed(this.seeds[env]);
+        model.startNewGame();
+        this.lastScores[env] = model.getScore();
+        writeObservation(env);
+    }
+
+    /**
+     * Writes the cells of a game that changed since its last observation, or all of them after a level started
+     */
+    private void writeObservation(int env) {
+        PacManModel model = this.models[env];
+        int base = env * this.observationBytes;
+        if (model.areAllCellsChanged()) {
+            for (int row = 0; row < this.rowCount; row++) {
+                for (int column = 0; column < this.columnCount; column++) {
+                    writeCell(model, base, row, column);
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < model.getChangedCellCount(); i++) {
+                int cell = model.getChangedCell(i);
+                int row = cell / model.getColumnCount();
+                int column = cell % model.getColumnCount();
+                if (row < this.rowCount && column < this.columnCount) {
+                    writeCell(model, base, row, column);
+                }
+            }
+        }
+        if (model.areAllCellsChanged() || model.isGhostEatingMode() != this.ghostEatingModes[env]) {
+            byte mode = (byte) (model.isGhostEatingMode() ? 1 : 0);
+            int planeStart = base + GHOST_EATING_MODE * this.planeBytes;
+            for (int i = planeStart; i < planeStart + this.planeBytes; i++) {
+                this.observations.put(i, mode);
+            }
+            this.ghostEatingModes[env] = model.isGhostEatingMode();
+        }
+        model.clearChangedCells();
+    }
+
+    private void writeCell(PacManModel model, int base, int row, int column) {
+        int offset = base + row * this.columnCount + column;
+        byte wall = 1;
+        byte dot = 0;
+        byte bigDot = 0;
+        byte ghosts = 0;
+        byte pacman = 0;
+        if (row < model.getRowCount() && column < model.getColumnCount()) {
+            int cell = row * model.getColumnCount() + column;
+            byte value = model.getBoard().get(cell);
+            wall = (byte) (value == Board.WALL ? 1 : 0);
+            dot = (byte) (value == Board.SMALLDOT ? 1 : 0);
+            bigDot = (byte) (value == Board.BIGDOT ? 1 : 0);
+            for (int ghost = 0; ghost < model.getGhostCount(); ghost++) {
+                if (model.getGhostIndex(ghost) == cell) {
+                    ghosts++;
+                }
+            }
+            pacman = (byte) (model.getPacmanIndex() == cell ? 1 : 0);
+        }
+        this.observations.put(offset + WALL * this.planeBytes, wall);
+        this.observations.put(offset + DOT * this.planeBytes, dot);
+        this.observations.put(offset + BIG_DOT * this.planeBytes, bigDot);
+        this.observations.put(offset + GHOST * this.planeBytes, ghosts);
+        this.observations.put(offset + PACMAN * this.planeBytes, pacman);
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (Thread worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * @return the observations of every game, getObservationBytes() bytes each
+     */
+    public ByteBuffer getObservations() {
+        return this.observations;
+    }
+
+    /**
+     * @return the points each game scored in the last step; the array is refilled by every step
+     */
+    public float[] getRewards() {
+        return this.rewards;
+    }
+
+    /**
+     * @return whether each game's episode ended in the last step, in which case its observation is already the first
+     * of the next episode; the array is refilled by every step
+     */
+    public boolean[] getDones() {
+        return this.dones;
+    }
+
+    /**
+     * @param env the number of a game
+     * @return the game, to read more of its state; stepping it directly would put it out of step with its observation
+     */
+    public PacManModel getModel(int env) {
+        return this.models[env];
+    }
+
+    public int getEnvCount() {
+        return this.envCount;
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+
+    /**
+     * @return the size of one game's observation, PLANE_COUNT * getRowCount() * getColumnCount()
+     */
+    public int getObservationBytes() {
+        return this.observationBytes;
+    }
+
+    /**
+     * @param episodeTickLimit the most steps an episode may take before it is ended and started again
+     */
+    public void setEpisodeTickLimit(int episodeTickLimit) {
+        this.episodeTickLimit = episodeTickLimit;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The random 64-bit keys PacManModel XORs together into its Zobrist hash, one for each thing a game state can hold:
+ * an eaten dot on a cell, PacMan on a cell, PacMan's last direction, a ghost on a cell with a velocity and a state,
+ * the ghost-eating mode with the steps it has left, and the level. Classic Zobrist hashing draws the keys into tables
+ * up front; here each key is a strong mix of what it stands for, which gives the same spread without a table the size
+ * of the board for every kind of key.
+ */
+
+package finalPacman;
+
+import finalPacman.PacManModel.Direction;
+
+final class ZobristKeys {
+    //one salt per kind of key, so the same number means different keys for different kinds
+    private static final long EATEN_DOT = 0x1d8e4e27c47d124fL;
+    private static final long PACMAN_CELL = 0x6a09e667f3bcc909L;
+    private static final long PACMAN_DIRECTION = 0x3c6ef372fe94f82bL;
+    private static final long GHOST = 0xa54ff53a5f1d36f1L;
+    private static final long GHOST_EATING_MODE = 0x510e527fade682d1L;
+    private static final long LEVEL = 0x9b05688c2b3e6c1fL;
+
+    private ZobristKeys() {
+    }
+
+    /**
+     * @param cell a flat Board index
+     * @return the key of the dot on that cell having been eaten
+     */
+    static long eatenDot(int cell) {
+        return mix(EATEN_DOT + cell);
+    }
+
+    static long pacmanCell(int cell) {
+        return mix(PACMAN_CELL + cell);
+    }
+
+    static long pacmanDirection(Direction direction) {
+        return mix(PACMAN_DIRECTION + direction.ordinal());
+    }
+
+    /**
+     * @param ghost the index of the ghost
+     * @param cell the flat Board index of its cell
+     * @param velocity its velocity as a Direction ordinal
+     * @param state GHOST_CHASING or GHOST_FRIGHTENED
+     * @return the key of that ghost being in that cell, velocity and state
+     */
+    static long ghost(int ghost, int cell, byte velocity, byte state) {
+        return mix(GHOST + ((long) ghost << 40 | (long) cell << 8 | velocity << 4 | state));
+    }
+
+    /**
+     * @param ghostEatingMode whether the mode is on
+     * @param counter the steps it has left
+     * @return the key of the mode, which is the same for every counter when the mode is off
+     */
+    static long ghostEatingMode(boolean ghostEatingMode, int counter) {
+        return ghostEatingMode ? mix(GHOST_EATING_MODE + 1 + counter) : mix(GHOST_EATING_MODE);
+    }
+
+    static long level(int level) {
+        return mix(LEVEL + level);
+    }
+
+    //the finalizer of SplittableRandom, which turns consecutive numbers into unrelated 64-bit values
+    private static long mix(long z) {
+        z *= 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}